@@ -0,0 +1,80 @@
+package com.epam.yarn.benchmarks;
+
+import com.epam.yarn.aggregate.HotelCounts;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the bookings per hotel, the {@code rows} score is in bookings/s.
+ * <ul>
+ * <li>{@code boxedTriple} - {@link HashMap} keyed on boxed {@link Triple}, as the analyzer used to</li>
+ * <li>{@code primitive} - {@link HotelCounts} keyed on the packed hotel ids</li>
+ * <li>{@code sketch} - approximate {@link HotelCounts} of {@value #SKETCH_CAPACITY} counters</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AggregationMapBenchmark {
+
+    private static final int BOOKINGS = 1_000_000;
+    private static final int SKETCH_CAPACITY = 1000;
+
+    @Param({"100", "10000", "1000000"})
+    public int hotels;
+
+    // Hotel ids of the bookings: continent, country and market of every booking one after another
+    private int[] bookings;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        bookings = new int[3 * BOOKINGS];
+        for (int i = 0; i < BOOKINGS; i++) {
+            int hotel = (int) (hotels * Math.pow(random.nextDouble(), 3));
+            bookings[3 * i] = hotel % 7;
+            bookings[3 * i + 1] = hotel / 7 % 213;
+            bookings[3 * i + 2] = hotel / 7 / 213;
+        }
+    }
+
+    @Benchmark
+    public Map<Triple<Integer, Integer, Integer>, Long> boxedTriple(RowCounter counter) {
+        Map<Triple<Integer, Integer, Integer>, Long> hotelId2count = new HashMap<>();
+        for (int i = 0; i < bookings.length; i += 3) {
+            Triple<Integer, Integer, Integer> hotelId = Triple.of(bookings[i], bookings[i + 1], bookings[i + 2]);
+            Long count = hotelId2count.getOrDefault(hotelId, 0L);
+            hotelId2count.put(hotelId, ++count);
+        }
+        counter.rows += BOOKINGS;
+        return hotelId2count;
+    }
+
+    @Benchmark
+    public HotelCounts primitive(RowCounter counter) {
+        HotelCounts hotelCounts = new HotelCounts();
+        for (int i = 0; i < bookings.length; i += 3) {
+            hotelCounts.increment(bookings[i], bookings[i + 1], bookings[i + 2]);
+        }
+        counter.rows += BOOKINGS;
+        return hotelCounts;
+    }
+
+    @Benchmark
+    public HotelCounts sketch(RowCounter counter) {
+        HotelCounts hotelCounts = new HotelCounts(SKETCH_CAPACITY);
+        for (int i = 0; i < bookings.length; i += 3) {
+            hotelCounts.increment(bookings[i], bookings[i + 1], bookings[i + 2]);
+        }
+        counter.rows += BOOKINGS;
+        return hotelCounts;
+    }
+}
@@ -0,0 +1,108 @@
+package com.epam.yarn.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates synthetic booking records with the header and the value ranges of the Expedia data set.
+ * <p>
+ * Hotel ids are skewed like the real ones: a few hotels get most of the bookings. A small share of
+ * the records has an empty or malformed hotel id, so the error paths of the readers are exercised too.
+ * The same seed always gives the same records.
+ */
+public class BookingCsvGenerator {
+
+    public static final String HEADER = "date_time,site_name,posa_continent,user_location_country,"
+            + "user_location_region,user_location_city,orig_destination_distance,user_id,is_mobile,is_package,"
+            + "channel,srch_ci,srch_co,srch_adults_cnt,srch_children_cnt,srch_rm_cnt,srch_destination_id,"
+            + "srch_destination_type_id,is_booking,cnt,hotel_continent,hotel_country,hotel_market,hotel_cluster";
+
+    // Shares of the records with an empty or a malformed hotel country
+    private static final double EMPTY_RATIO = 0.001;
+    private static final double MALFORMED_RATIO = 0.001;
+
+    private final Random random;
+    private final double bookingRatio;
+    private final int hotels;
+
+    /**
+     * @param bookingRatio share of the records which are bookings rather than clicks
+     * @param hotels       number of distinct hotels
+     */
+    public BookingCsvGenerator(long seed, double bookingRatio, int hotels) {
+        this.random = new Random(seed);
+        this.bookingRatio = bookingRatio;
+        this.hotels = hotels;
+    }
+
+    /**
+     * @return header followed by the records
+     */
+    public byte[] generate(int rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows * 160);
+        try {
+            write(out, rows);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public void write(OutputStream out, int rows) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        out.write((HEADER + '\n').getBytes(StandardCharsets.US_ASCII));
+        for (int i = 0; i < rows; i++) {
+            line.setLength(0);
+            appendRecord(line);
+            out.write(line.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private void appendRecord(StringBuilder line) {
+        line.append("2014-08-11 07:46:59,")
+                .append(1 + random.nextInt(50)).append(',')
+                .append(random.nextInt(5)).append(',')
+                .append(random.nextInt(240)).append(',')
+                .append(random.nextInt(1000)).append(',')
+                .append(random.nextInt(50000)).append(',');
+        if (random.nextDouble() < 0.6) {
+            line.append(random.nextInt(5000)).append('.').append(random.nextInt(10000));
+        }
+        line.append(',')
+                .append(random.nextInt(1000000)).append(',')
+                .append(random.nextInt(2)).append(',')
+                .append(random.nextInt(2)).append(',')
+                .append(random.nextInt(11)).append(',')
+                .append("2014-08-27,2014-08-31,")
+                .append(adults()).append(',')
+                .append(random.nextInt(4)).append(',')
+                .append(1 + random.nextInt(3)).append(',')
+                .append(1 + random.nextInt(60000)).append(',')
+                .append(1 + random.nextInt(9)).append(',')
+                .append(random.nextDouble() < bookingRatio ? 1 : 0).append(',')
+                .append(1 + random.nextInt(3)).append(',');
+
+        // Skewed hotel, its id is split into continent, country and market the way the data set nests them
+        int hotel = (int) (hotels * Math.pow(random.nextDouble(), 3));
+        double error = random.nextDouble();
+        line.append(hotel % 7).append(',');
+        if (error < EMPTY_RATIO) {
+            // Empty hotel country
+        } else if (error < EMPTY_RATIO + MALFORMED_RATIO) {
+            line.append('x');
+        } else {
+            line.append(hotel / 7 % 213);
+        }
+        line.append(',')
+                .append(hotel / 7 / 213).append(',')
+                .append(random.nextInt(100)).append('\n');
+    }
+
+    private int adults() {
+        int choice = random.nextInt(6);
+        return choice == 0 ? 1 : choice <= 3 ? 2 : choice - 1;
+    }
+}
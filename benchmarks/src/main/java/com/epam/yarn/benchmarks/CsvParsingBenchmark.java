@@ -0,0 +1,104 @@
+package com.epam.yarn.benchmarks;
+
+import com.epam.yarn.container.CouplesBookingsAggregator;
+import com.epam.yarn.container.csv.CsvReaderType;
+import com.epam.yarn.container.csv.RowReader;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the analyzed columns of every record of the generated input, the {@code rows} score is in rows/s.
+ * <ul>
+ * <li>{@code toMap} - Commons CSV record converted to a map of all the columns, as the analyzer used to</li>
+ * <li>{@code commonsByIndex} - Commons CSV record read by the column indexes, see {@link CsvReaderType#COMMONS}</li>
+ * <li>{@code bytes} - cells tokenized in the bytes, see {@link CsvReaderType#BYTES}</li>
+ * <li>{@code bytesAggregated} - the whole path of the analyzer: bytes reader, filter and the count per hotel</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvParsingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"0.08", "0.5"})
+    public double bookingRatio;
+
+    private final String[] columns = CouplesBookingsAggregator.COLUMNS.toArray(new String[0]);
+    private byte[] csv;
+
+    @Setup
+    public void generate() {
+        csv = new BookingCsvGenerator(42, bookingRatio, 100_000).generate(rows);
+    }
+
+    @Benchmark
+    public void toMap(RowCounter counter, Blackhole blackhole) throws IOException {
+        try (CSVParser parser = CSVParser.parse(new ByteArrayInputStream(csv), StandardCharsets.UTF_8,
+                CSVFormat.RFC4180.withHeader())) {
+            for (CSVRecord record : parser) {
+                Map<String, String> cells = record.toMap();
+                for (String column : columns) {
+                    blackhole.consume(parse(cells.get(column)));
+                }
+            }
+        }
+        counter.rows += rows;
+    }
+
+    @Benchmark
+    public void commonsByIndex(RowCounter counter, Blackhole blackhole) throws IOException {
+        read(CsvReaderType.COMMONS, blackhole);
+        counter.rows += rows;
+    }
+
+    @Benchmark
+    public void bytes(RowCounter counter, Blackhole blackhole) throws IOException {
+        read(CsvReaderType.BYTES, blackhole);
+        counter.rows += rows;
+    }
+
+    @Benchmark
+    public CouplesBookingsAggregator bytesAggregated(RowCounter counter) throws IOException {
+        CouplesBookingsAggregator aggregator = new CouplesBookingsAggregator();
+        try (RowReader row = CsvReaderType.BYTES.open(new ByteArrayInputStream(csv), columns)) {
+            while (row.next()) {
+                aggregator.accept(row);
+            }
+        }
+        counter.rows += rows;
+        return aggregator;
+    }
+
+    private void read(CsvReaderType readerType, Blackhole blackhole) throws IOException {
+        try (RowReader row = readerType.open(new ByteArrayInputStream(csv), columns)) {
+            while (row.next()) {
+                for (int column = 0; column < columns.length; column++) {
+                    blackhole.consume(row.getInt(column));
+                }
+            }
+        }
+    }
+
+    private static int parse(String cell) {
+        try {
+            return cell == null || cell.isEmpty() ? -1 : Integer.parseInt(cell);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.epam.yarn.benchmarks;
+
+import com.epam.yarn.client.ClientApp;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.MiniYARNCluster;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.yarn.benchmarks.ScalingOptions.*;
+
+/**
+ * Measures how the application scales with the number of containers and their resources.
+ * <p>
+ * Starts HDFS and YARN in process, writes the generated bookings to HDFS and submits the application through
+ * {@link ClientApp} once per combination of the comma separated settings. Every run reports the latencies
+ * from the submission to the master and to the first analyzer container, the wall time of the client and
+ * the rows analyzed per second. The report is a JSON file, so that runs of different revisions can be compared:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.epam.yarn.benchmarks.ScalingHarness --num_containers 1,2,4
+ * </pre>
+ * The masters and the containers are separate JVMs launched by the NodeManagers, their classpath is the one
+ * of the harness.
+ */
+public class ScalingHarness {
+
+    private static final Log LOG = LogFactory.getLog(ScalingHarness.class);
+
+    private static final String MASTER_MEMORY = "256";
+    private static final String CLIENT_TIMEOUT_MS = "1800000";
+
+    private final Options opts = new Options();
+
+    private int rows;
+    private double bookingRatio;
+    private List<String> numContainers;
+    private List<String> containerMemory;
+    private List<String> containerVcores;
+    private int repeats;
+    private int nodes;
+    private int nodeMemory;
+    private int nodeVcores;
+    private String jar;
+    private File workDir;
+    private File report;
+
+    public ScalingHarness() {
+        opts.addOption(ROWS.getName(), true, "Rows of the generated input. Default " + ROWS.getDefault());
+        opts.addOption(BOOKING_RATIO.getName(), true,
+                "Share of the bookings among the rows. Default " + BOOKING_RATIO.getDefault());
+        opts.addOption(NUM_CONTAINERS.getName(), true,
+                "Comma separated numbers of containers. Default " + NUM_CONTAINERS.getDefault());
+        opts.addOption(CONTAINER_MEMORY.getName(), true,
+                "Comma separated container memory in MB. Default " + CONTAINER_MEMORY.getDefault());
+        opts.addOption(CONTAINER_VCORES.getName(), true,
+                "Comma separated container virtual cores. Default " + CONTAINER_VCORES.getDefault());
+        opts.addOption(REPEATS.getName(), true, "Runs of every combination. Default " + REPEATS.getDefault());
+        opts.addOption(NODES.getName(), true, "DataNodes and NodeManagers. Default " + NODES.getDefault());
+        opts.addOption(NODE_MEMORY.getName(), true, "Memory of a NodeManager in MB. Default " + NODE_MEMORY.getDefault());
+        opts.addOption(NODE_VCORES.getName(), true, "Virtual cores of a NodeManager. Default " + NODE_VCORES.getDefault());
+        opts.addOption(JAR.getName(), true, "Application jar. Default the jar the harness is loaded from");
+        opts.addOption(WORK_DIR.getName(), true, "Directory of the clusters. Default " + WORK_DIR.getDefault());
+        opts.addOption(REPORT.getName(), true, "JSON report. Default " + REPORT.getDefault());
+        opts.addOption(HELP.getName(), false, "Print usage");
+    }
+
+    public boolean init(String[] args) throws Exception {
+        CommandLine cliParser = new GnuParser().parse(opts, args);
+        if (cliParser.hasOption(HELP.getName())) {
+            new HelpFormatter().printHelp("ScalingHarness", opts);
+            return false;
+        }
+
+        rows = Integer.parseInt(cliParser.getOptionValue(ROWS.getName(), ROWS.getDefault()));
+        bookingRatio = Double.parseDouble(cliParser.getOptionValue(BOOKING_RATIO.getName(), BOOKING_RATIO.getDefault()));
+        numContainers = values(cliParser, NUM_CONTAINERS);
+        containerMemory = values(cliParser, CONTAINER_MEMORY);
+        containerVcores = values(cliParser, CONTAINER_VCORES);
+        repeats = Integer.parseInt(cliParser.getOptionValue(REPEATS.getName(), REPEATS.getDefault()));
+        nodes = Integer.parseInt(cliParser.getOptionValue(NODES.getName(), NODES.getDefault()));
+        nodeMemory = Integer.parseInt(cliParser.getOptionValue(NODE_MEMORY.getName(), NODE_MEMORY.getDefault()));
+        nodeVcores = Integer.parseInt(cliParser.getOptionValue(NODE_VCORES.getName(), NODE_VCORES.getDefault()));
+        jar = cliParser.getOptionValue(JAR.getName(),
+                new File(ClientApp.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath());
+        workDir = new File(cliParser.getOptionValue(WORK_DIR.getName(), WORK_DIR.getDefault())).getAbsoluteFile();
+        report = new File(cliParser.getOptionValue(REPORT.getName(), REPORT.getDefault())).getAbsoluteFile();
+        return true;
+    }
+
+    private static List<String> values(CommandLine cliParser, ScalingOptions option) {
+        List<String> values = new ArrayList<>();
+        for (String value : cliParser.getOptionValue(option.getName(), option.getDefault()).split(",")) {
+            values.add(String.valueOf(Integer.parseInt(value.trim())));
+        }
+        return values;
+    }
+
+    public void run() throws Exception {
+        YarnConfiguration conf = new YarnConfiguration();
+        conf.set(MiniDFSCluster.HDFS_MINIDFS_BASEDIR, new File(workDir, "dfs").getPath());
+        conf.setInt(YarnConfiguration.NM_PMEM_MB, nodeMemory);
+        conf.setInt(YarnConfiguration.NM_VCORES, nodeVcores);
+        conf.setInt(YarnConfiguration.RM_SCHEDULER_MINIMUM_ALLOCATION_MB, 32);
+        conf.setInt(YarnConfiguration.RM_SCHEDULER_MAXIMUM_ALLOCATION_MB, nodeMemory);
+        conf.setInt(YarnConfiguration.RM_SCHEDULER_MAXIMUM_ALLOCATION_VCORES, nodeVcores);
+        // The JVMs use more memory than their heap, the measured settings are the ones of the requests
+        conf.setBoolean(YarnConfiguration.NM_PMEM_CHECK_ENABLED, false);
+        conf.setBoolean(YarnConfiguration.NM_VMEM_CHECK_ENABLED, false);
+
+        MiniDFSCluster dfs = new MiniDFSCluster.Builder(conf).numDataNodes(nodes).build();
+        MiniYARNCluster yarn = new MiniYARNCluster(ScalingHarness.class.getSimpleName(), nodes, 1, 1);
+        try {
+            dfs.waitActive();
+            conf.set(CommonConfigurationKeysPublic.FS_DEFAULT_NAME_KEY, dfs.getFileSystem().getUri().toString());
+            yarn.init(conf);
+            yarn.start();
+            if (!yarn.waitForNodeManagersToConnect(60_000)) {
+                throw new IllegalStateException("NodeManagers did not connect");
+            }
+
+            Configuration clusterConf = shareConfiguration(yarn.getConfig());
+            Path input = generateInput(FileSystem.get(clusterConf));
+
+            List<ScalingRun> runs = new ArrayList<>();
+            for (String containers : numContainers) {
+                for (String memory : containerMemory) {
+                    for (String vcores : containerVcores) {
+                        for (int repeat = 0; repeat < repeats; repeat++) {
+                            ScalingRun run = new ScalingRun(runs.size(), containers, memory, vcores);
+                            run.submit(clusterConf, yarn.getResourceManager(), jar, input, MASTER_MEMORY,
+                                    CLIENT_TIMEOUT_MS, rows);
+                            LOG.info("Run " + run.toJson());
+                            runs.add(run);
+                            writeReport(runs);
+                        }
+                    }
+                }
+            }
+            LOG.info("Report is written to " + report);
+        } finally {
+            yarn.stop();
+            dfs.shutdown();
+        }
+    }
+
+    /**
+     * Writes the configuration of the clusters where the masters and the containers find it on their classpath
+     *
+     * @return configuration of the clients
+     */
+    private Configuration shareConfiguration(Configuration yarnConf) throws IOException {
+        File confDir = new File(workDir, "conf");
+        if (!confDir.isDirectory() && !confDir.mkdirs()) {
+            throw new IOException("Could not create " + confDir);
+        }
+
+        StringBuilder classpath = new StringBuilder(confDir.getPath());
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.append(',').append(new File(entry).getAbsolutePath());
+        }
+        Configuration conf = new YarnConfiguration(yarnConf);
+        conf.set(YarnConfiguration.YARN_APPLICATION_CLASSPATH, classpath.toString());
+
+        for (String site : new String[]{"core-site.xml", "yarn-site.xml"}) {
+            try (OutputStream out = new FileOutputStream(new File(confDir, site))) {
+                conf.writeXml(out);
+            }
+        }
+        return conf;
+    }
+
+    private Path generateInput(FileSystem fs) throws IOException {
+        Path input = fs.makeQualified(new Path("/scaling/bookings.csv"));
+        LOG.info("Writing " + rows + " rows to " + input);
+        try (FSDataOutputStream out = fs.create(input, true);
+             OutputStream buffered = new BufferedOutputStream(out, 1 << 20)) {
+            new BookingCsvGenerator(42, bookingRatio, 100_000).write(buffered, rows);
+        }
+        return input;
+    }
+
+    private void writeReport(List<ScalingRun> runs) throws IOException {
+        File dir = report.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(report), false, StandardCharsets.UTF_8.name())) {
+            out.println("{");
+            out.println("  \"rows\": " + rows + ",");
+            out.println("  \"bookingRatio\": " + bookingRatio + ",");
+            out.println("  \"nodes\": " + nodes + ",");
+            out.println("  \"nodeMemory\": " + nodeMemory + ",");
+            out.println("  \"nodeVcores\": " + nodeVcores + ",");
+            out.println("  \"runs\": [");
+            for (int i = 0; i < runs.size(); i++) {
+                out.println("    " + runs.get(i).toJson() + (i + 1 < runs.size() ? "," : ""));
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ScalingHarness harness = new ScalingHarness();
+        if (harness.init(args)) {
+            harness.run();
+        }
+        // Threads of the stopped clusters and clients would keep the JVM alive
+        System.exit(0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.epam.yarn.benchmarks;
+
+public enum ScalingOptions {
+
+    ROWS ("rows", "1000000"),
+    BOOKING_RATIO ("booking_ratio", "0.08"),
+    NUM_CONTAINERS ("num_containers", "1,2,4"),
+    CONTAINER_MEMORY ("container_memory", "256"),
+    CONTAINER_VCORES ("container_vcores", "1"),
+    REPEATS ("repeats", "1"),
+    NODES ("nodes", "2"),
+    NODE_MEMORY ("node_memory", "4096"),
+    NODE_VCORES ("node_vcores", "8"),
+    JAR ("jar", ""),
+    WORK_DIR ("work_dir", "target/scaling"),
+    REPORT ("report", "target/scaling/report.json"),
+    HELP ("help", "");
+
+    private String name;
+    private String defaultValue;
+
+    ScalingOptions(String name, String defaultValue) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDefault() {
+        return defaultValue;
+    }
+}
@@ -0,0 +1,142 @@
+package com.epam.yarn.benchmarks;
+
+import com.epam.yarn.client.ClientApp;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.resourcemanager.ResourceManager;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainerState;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerAppReport;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One submission of the application by the {@link ScalingHarness}.
+ * <p>
+ * The containers of the application are watched in the ResourceManager while the client runs, the analyzer
+ * containers live until the queue of splits drains, so none of them is missed.
+ */
+class ScalingRun {
+
+    // Interval between the looks at the containers of the application
+    private static final long WATCH_INTERVAL_MS = 10;
+
+    private final int id;
+    private final String numContainers;
+    private final String containerMemory;
+    private final String containerVcores;
+
+    private boolean succeeded;
+    private long wallMs;
+    private double rowsPerSecond;
+    // Latencies from the submission, -1 until the container is seen. Written by the watcher, read once it is joined
+    private long masterAllocatedMs = -1;
+    private long firstContainerAllocatedMs = -1;
+    private long firstContainerRunningMs = -1;
+    private final Set<ContainerId> containers = new HashSet<>();
+
+    ScalingRun(int id, String numContainers, String containerMemory, String containerVcores) {
+        this.id = id;
+        this.numContainers = numContainers;
+        this.containerMemory = containerMemory;
+        this.containerVcores = containerVcores;
+    }
+
+    /**
+     * Submits the application and waits for its completion
+     */
+    void submit(Configuration conf, ResourceManager rm, String jar, Path input, String masterMemory,
+                String timeoutMs, int rows) throws Exception {
+        String appName = "scaling-" + id;
+        ClientApp client = new ClientApp(new YarnConfiguration(conf));
+        client.init(new String[]{
+                "--appname", appName,
+                "--jar", jar,
+                "--input", input.toString(),
+                "--num_containers", numContainers,
+                "--container_memory", containerMemory,
+                "--container_vcores", containerVcores,
+                "--master_memory", masterMemory,
+                "--master_vcores", "1",
+                "--timeout", timeoutMs});
+
+        Thread watcher = new Thread(() -> watch(rm, appName), "watcher-" + appName);
+        watcher.setDaemon(true);
+        long start = System.currentTimeMillis();
+        watcher.start();
+        try {
+            succeeded = client.run();
+        } finally {
+            wallMs = System.currentTimeMillis() - start;
+            watcher.interrupt();
+            watcher.join();
+        }
+        rowsPerSecond = rows * 1000.0 / wallMs;
+    }
+
+    private void watch(ResourceManager rm, String appName) {
+        RMApp app = null;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (app == null) {
+                app = rm.getRMContext().getRMApps().values().stream()
+                        .filter(candidate -> appName.equals(candidate.getName()))
+                        .findFirst()
+                        .orElse(null);
+            }
+            RMAppAttempt attempt = app != null ? app.getCurrentAppAttempt() : null;
+            // The master container is the first one of the attempt, the others are known once it is
+            Container master = attempt != null ? attempt.getMasterContainer() : null;
+            SchedulerAppReport report = master != null
+                    ? rm.getResourceScheduler().getSchedulerAppInfo(attempt.getAppAttemptId()) : null;
+            if (report != null) {
+                for (RMContainer container : report.getLiveContainers()) {
+                    see(app.getSubmitTime(), container, master.getId());
+                }
+            }
+
+            try {
+                Thread.sleep(WATCH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void see(long submitTime, RMContainer container, ContainerId master) {
+        long allocatedMs = container.getCreationTime() - submitTime;
+        if (container.getContainerId().equals(master)) {
+            if (masterAllocatedMs < 0) {
+                masterAllocatedMs = allocatedMs;
+            }
+            return;
+        }
+
+        if (containers.add(container.getContainerId())
+                && (firstContainerAllocatedMs < 0 || allocatedMs < firstContainerAllocatedMs)) {
+            firstContainerAllocatedMs = allocatedMs;
+        }
+        if (firstContainerRunningMs < 0 && container.getState() == RMContainerState.RUNNING) {
+            firstContainerRunningMs = System.currentTimeMillis() - submitTime;
+        }
+    }
+
+    String toJson() {
+        return "{\"id\": " + id
+                + ", \"numContainers\": " + numContainers
+                + ", \"containerMemory\": " + containerMemory
+                + ", \"containerVcores\": " + containerVcores
+                + ", \"succeeded\": " + succeeded
+                + ", \"containersAllocated\": " + containers.size()
+                + ", \"submitToMasterMs\": " + masterAllocatedMs
+                + ", \"submitToFirstContainerMs\": " + firstContainerAllocatedMs
+                + ", \"submitToFirstRunningContainerMs\": " + firstContainerRunningMs
+                + ", \"wallMs\": " + wallMs
+                + ", \"rowsPerSecond\": " + Math.round(rowsPerSecond) + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.epam.yarn.benchmarks;
+
+import com.epam.yarn.aggregate.HotelCounts;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Selects the k most booked hotels of the counts, the {@code rows} score is in counted hotels/s.
+ * <ul>
+ * <li>{@code boxedSort} - sorted stream of the boxed map entries, as the analyzer used to</li>
+ * <li>{@code hotelCounts} - {@link HotelCounts#top(int)}, a bounded heap of the primitive counts</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopKBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int hotels;
+
+    @Param({"3", "100"})
+    public int k;
+
+    private Map<Triple<Integer, Integer, Integer>, Long> boxedCounts;
+    private HotelCounts hotelCounts;
+
+    @Setup
+    public void count() {
+        Random random = new Random(42);
+        boxedCounts = new HashMap<>();
+        hotelCounts = new HotelCounts();
+        for (int hotel = 0; hotel < hotels; hotel++) {
+            // Skewed counts with many ties, like the real ones
+            long count = 1 + (long) (1000 * Math.pow(random.nextDouble(), 8));
+            boxedCounts.put(Triple.of(hotel % 7, hotel / 7 % 213, hotel / 7 / 213), count);
+            for (long i = 0; i < count; i++) {
+                hotelCounts.increment(hotel % 7, hotel / 7 % 213, hotel / 7 / 213);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> boxedSort(RowCounter counter) {
+        counter.rows += hotels;
+        return boxedCounts.entrySet().stream()
+                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                .limit(k)
+                .map(Object::toString)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> hotelCounts(RowCounter counter) {
+        counter.rows += hotels;
+        return hotelCounts.top(k);
+    }
+}
@@ -39,4 +39,25 @@ public class Constants {
 
   public static final String AM_JAR_NAME = "AppMaster.jar";
 
+  /**
+   * Location of the booking data set analyzed by the containers
+   */
+  public static final String BOOKING_SOURCE = "/user/files/train.csv";
+
+  /**
+   * Directory where every application gets a sub directory with the partial
+   * counts of its containers and the merged result
+   */
+  public static final String RESULT_DIR = "/user/files/results";
+
+  /**
+   * Name of the merged result file
+   */
+  public static final String RESULT_NAME = "result";
+
+  /**
+   * Number of most booked hotels to report
+   */
+  public static final int TOP_HOTELS = 3;
+
 }
@@ -0,0 +1,52 @@
+package com.epam.yarn;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsAction;
+import org.apache.hadoop.yarn.api.records.LocalResource;
+import org.apache.hadoop.yarn.api.records.LocalResourceType;
+import org.apache.hadoop.yarn.api.records.LocalResourceVisibility;
+import org.apache.hadoop.yarn.api.records.URL;
+
+import java.io.IOException;
+
+/**
+ * Describes the files localized by the NodeManagers for the containers.
+ * <p>
+ * A NodeManager localizes a resource once per node and keeps it in the cache of its visibility:
+ * {@code PUBLIC} resources are shared by all the applications, {@code APPLICATION} ones by the containers
+ * of one application. Only world readable files may be {@code PUBLIC}, otherwise the localization fails.
+ */
+public final class LocalResources {
+
+    private LocalResources() {
+    }
+
+    /**
+     * @param file qualified path of the file
+     * @return resource with the actual size and modification time of the file,
+     * {@code PUBLIC} if everybody may read it, {@code APPLICATION} otherwise
+     */
+    public static LocalResource newFileResource(FileSystem fs, Path file) throws IOException {
+        FileStatus status = fs.getFileStatus(file);
+        return LocalResource.newInstance(URL.fromURI(file.toUri()), LocalResourceType.FILE,
+                isPublic(fs, status) ? LocalResourceVisibility.PUBLIC : LocalResourceVisibility.APPLICATION,
+                status.getLen(), status.getModificationTime());
+    }
+
+    /**
+     * Same rule as the NodeManager: the file is readable by others and all its ancestors are executable by them
+     */
+    private static boolean isPublic(FileSystem fs, FileStatus file) throws IOException {
+        if (!file.getPermission().getOtherAction().implies(FsAction.READ)) {
+            return false;
+        }
+        for (Path dir = file.getPath().getParent(); dir != null; dir = dir.getParent()) {
+            if (!fs.getFileStatus(dir).getPermission().getOtherAction().implies(FsAction.EXECUTE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.epam.yarn;
+
+/**
+ * HTTP protocol between the clients and the application master, served at its tracking URL.
+ * <ul>
+ * <li>{@code GET /status?completed=<tasks>&wait_ms=<ms>} answers {@code progress <completed tasks> <total tasks>}
+ * as soon as the number of completed tasks differs from the given one or the wait is over, or
+ * {@code done <completed tasks> <total tasks>} once all the tasks are committed and the master is finishing,
+ * or {@code failed <message>} if the parameters are malformed</li>
+ * </ul>
+ * An application master started in session mode also serves the queries:
+ * <ul>
+ * <li>{@code POST /query?input=<input>&top_k=<k>&query=<query>} analyzes the input with the containers
+ * of the session, running the optional query instead of the one the session was started with.
+ * The response streams {@code progress <completed tasks> <total tasks>} lines while the analysis runs,
+ * then either {@code result} followed by the k most booked hotels or top groups of the query, one per line,
+ * or {@code failed <message>}</li>
+ * <li>{@code POST /stop} stops the session once the running analyses are over, answers {@code stopping}</li>
+ * </ul>
+ */
+public final class TrackingProtocol {
+
+    public static final String STATUS_PATH = "/status";
+    public static final String QUERY_PATH = "/query";
+    public static final String STOP_PATH = "/stop";
+
+    public static final String COMPLETED_PARAM = "completed";
+    public static final String WAIT_MS_PARAM = "wait_ms";
+    public static final String INPUT_PARAM = "input";
+    public static final String TOP_K_PARAM = "top_k";
+    public static final String QUERY_PARAM = "query";
+
+    public static final String PROGRESS_RESPONSE = "progress";
+    public static final String DONE_RESPONSE = "done";
+    public static final String RESULT_RESPONSE = "result";
+    public static final String FAILED_RESPONSE = "failed";
+    public static final String STOPPING_RESPONSE = "stopping";
+
+    private TrackingProtocol() {
+    }
+}
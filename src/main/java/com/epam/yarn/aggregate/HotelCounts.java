@@ -0,0 +1,232 @@
+package com.epam.yarn.aggregate;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Number of bookings per hotel, where a hotel is identified by (continent, country, market).
+ * <p>
+ * Containers write their partial counts with {@link #write(FileSystem, Path)} and the
+ * application master merges them into the final result. Hotel ids are packed with {@link HotelKey},
+ * so counting a booking of an already known hotel allocates nothing.
+ * <p>
+ * The counts are exact by default and take memory for every hotel. Given a sketch capacity, only the
+ * most booked hotels are counted with a {@link SpaceSaving} sketch of that many counters, so the memory
+ * does not depend on the input, and every count comes with the most it may overestimate the true one.
+ */
+public class HotelCounts {
+
+    // Exact counts, null if the counts are approximate
+    private final LongCountMap hotelId2count;
+    // Approximate counts, null if the counts are exact
+    private final SpaceSaving sketch;
+
+    public HotelCounts() {
+        this(0);
+    }
+
+    /**
+     * @param sketchCapacity number of the hotels counted approximately, 0 to count all of them exactly
+     */
+    public HotelCounts(int sketchCapacity) {
+        if (sketchCapacity < 0) {
+            throw new IllegalArgumentException("Sketch capacity must not be negative: " + sketchCapacity);
+        }
+        hotelId2count = sketchCapacity == 0 ? new LongCountMap() : null;
+        sketch = sketchCapacity == 0 ? null : new SpaceSaving(sketchCapacity);
+    }
+
+    /**
+     * @throws IllegalArgumentException if any of the ids is out of the {@link HotelKey} range
+     */
+    public void increment(int hotelContinent, int hotelCountry, int hotelMarket) {
+        if (!HotelKey.isValid(hotelContinent, hotelCountry, hotelMarket)) {
+            throw new IllegalArgumentException("Illegal hotel id: ("
+                    + hotelContinent + "," + hotelCountry + "," + hotelMarket + ")");
+        }
+        long key = HotelKey.pack(hotelContinent, hotelCountry, hotelMarket);
+        if (sketch != null) {
+            sketch.increment(key);
+        } else {
+            hotelId2count.increment(key);
+        }
+    }
+
+    /**
+     * Adds the other counts, exact counts may be added to approximate ones but not the other way round
+     *
+     * @throws IllegalArgumentException if the other counts are approximate and these ones are exact
+     */
+    public void merge(HotelCounts other) {
+        if (other.sketch != null) {
+            if (sketch == null) {
+                throw new IllegalArgumentException("Approximate counts cannot be merged into exact ones");
+            }
+            sketch.merge(other.sketch);
+        } else if (sketch != null) {
+            other.hotelId2count.forEach(sketch::add);
+        } else {
+            hotelId2count.merge(other.hotelId2count);
+        }
+    }
+
+    /**
+     * @return number of the counted hotels
+     */
+    public int size() {
+        return sketch != null ? sketch.size() : hotelId2count.size();
+    }
+
+    public boolean isApproximate() {
+        return sketch != null;
+    }
+
+    /**
+     * @return the most bookings a hotel missing in the approximate counts may have, 0 if the counts are exact
+     */
+    public long getMaxMissingCount() {
+        return sketch != null ? sketch.getMinCount() : 0;
+    }
+
+    /**
+     * @return accuracy of the counts, for instance to print next to the {@link #top(int)} hotels
+     */
+    public String describeAccuracy() {
+        if (sketch == null) {
+            return "Exact counts of " + size() + " hotels";
+        }
+        return "Approximate counts of " + sketch.getTotal() + " bookings in " + sketch.getCapacity()
+                + " counters, a hotel which is not counted has at most " + sketch.getMinCount() + " bookings";
+    }
+
+    /**
+     * Removes all counts keeping the allocated capacity
+     */
+    public void clear() {
+        if (sketch != null) {
+            sketch.clear();
+        } else {
+            hotelId2count.clear();
+        }
+    }
+
+    /**
+     * @return k most booked hotels formatted as {@code (continent,country,market)=count}, most booked first,
+     * hotels with the same count are ordered by their ids. An approximate count which may overestimate
+     * the true one is formatted as the range of the true count {@code min..count}
+     */
+    public List<String> top(int k) {
+        TopK topK = new TopK(k);
+        if (sketch != null) {
+            for (int counter = 0; counter < sketch.size(); counter++) {
+                topK.offer(sketch.key(counter), sketch.count(counter));
+            }
+        } else {
+            topK.offerAll(hotelId2count);
+        }
+        List<String> top = new ArrayList<>(topK.size());
+        topK.forEach((key, count) -> {
+            long error = sketch != null ? sketch.error(sketch.counterOf(key)) : 0;
+            top.add(HotelKey.toString(key) + "=" + (error > 0 ? (count - error) + ".." + count : count));
+        });
+        return top;
+    }
+
+    /**
+     * Serializes the counts as the sketch capacity, 0 for the exact counts, followed by the number of entries
+     * and the entries, every number is written as a variable length integer. Approximate counts write their
+     * total and the most a hotel without a counter may have before the entries and the error after every count.
+     */
+    public void write(DataOutput out) throws IOException {
+        if (sketch == null) {
+            WritableUtils.writeVInt(out, 0);
+            WritableUtils.writeVInt(out, hotelId2count.size());
+            LongCountMap.Cursor cursor = hotelId2count.cursor();
+            while (cursor.next()) {
+                writeKey(out, cursor.key());
+                WritableUtils.writeVLong(out, cursor.count());
+            }
+            return;
+        }
+
+        WritableUtils.writeVInt(out, sketch.getCapacity());
+        WritableUtils.writeVLong(out, sketch.getTotal());
+        WritableUtils.writeVLong(out, sketch.getMinCount());
+        WritableUtils.writeVInt(out, sketch.size());
+        for (int counter = 0; counter < sketch.size(); counter++) {
+            writeKey(out, sketch.key(counter));
+            WritableUtils.writeVLong(out, sketch.count(counter));
+            WritableUtils.writeVLong(out, sketch.error(counter));
+        }
+    }
+
+    private static void writeKey(DataOutput out, long key) throws IOException {
+        WritableUtils.writeVInt(out, HotelKey.continent(key));
+        WritableUtils.writeVInt(out, HotelKey.country(key));
+        WritableUtils.writeVInt(out, HotelKey.market(key));
+    }
+
+    /**
+     * Adds the counts serialized with {@link #write(DataOutput)}
+     *
+     * @throws IOException if the serialized counts are approximate and these ones are exact
+     */
+    public void readFields(DataInput in) throws IOException {
+        int sketchCapacity = WritableUtils.readVInt(in);
+        if (sketchCapacity == 0) {
+            int size = WritableUtils.readVInt(in);
+            for (int i = 0; i < size; i++) {
+                long key = readKey(in);
+                long count = WritableUtils.readVLong(in);
+                if (sketch != null) {
+                    sketch.add(key, count);
+                } else {
+                    hotelId2count.add(key, count);
+                }
+            }
+            return;
+        }
+
+        if (sketch == null) {
+            throw new IOException("Approximate counts cannot be merged into exact ones");
+        }
+        SpaceSaving read = new SpaceSaving(sketchCapacity);
+        read.addTotal(WritableUtils.readVLong(in));
+        read.restoreMinCount(WritableUtils.readVLong(in));
+        int size = WritableUtils.readVInt(in);
+        for (int i = 0; i < size; i++) {
+            long key = readKey(in);
+            long count = WritableUtils.readVLong(in);
+            read.restore(key, count, WritableUtils.readVLong(in));
+        }
+        sketch.merge(read);
+    }
+
+    private static long readKey(DataInput in) throws IOException {
+        int hotelContinent = WritableUtils.readVInt(in);
+        int hotelCountry = WritableUtils.readVInt(in);
+        int hotelMarket = WritableUtils.readVInt(in);
+        return HotelKey.pack(hotelContinent, hotelCountry, hotelMarket);
+    }
+
+    public void write(FileSystem fs, Path path) throws IOException {
+        try (FSDataOutputStream out = fs.create(path, true)) {
+            write(out);
+        }
+    }
+
+    public void readFields(FileSystem fs, Path path) throws IOException {
+        try (FSDataInputStream in = fs.open(path)) {
+            readFields(in);
+        }
+    }
+}
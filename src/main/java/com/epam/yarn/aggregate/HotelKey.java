@@ -0,0 +1,42 @@
+package com.epam.yarn.aggregate;
+
+/**
+ * Packs a hotel id (continent, country, market) into a single {@code long}.
+ * Every part takes {@value #BITS} bits, so ids must be in range [0, {@value #MAX_ID}].
+ */
+public final class HotelKey {
+
+    public static final int BITS = 21;
+    public static final int MAX_ID = (1 << BITS) - 1;
+
+    private HotelKey() {
+    }
+
+    public static boolean isValid(int hotelContinent, int hotelCountry, int hotelMarket) {
+        return isValid(hotelContinent) && isValid(hotelCountry) && isValid(hotelMarket);
+    }
+
+    private static boolean isValid(int id) {
+        return id >= 0 && id <= MAX_ID;
+    }
+
+    public static long pack(int hotelContinent, int hotelCountry, int hotelMarket) {
+        return (long) hotelContinent << (2 * BITS) | (long) hotelCountry << BITS | hotelMarket;
+    }
+
+    public static int continent(long key) {
+        return (int) (key >>> (2 * BITS)) & MAX_ID;
+    }
+
+    public static int country(long key) {
+        return (int) (key >>> BITS) & MAX_ID;
+    }
+
+    public static int market(long key) {
+        return (int) key & MAX_ID;
+    }
+
+    public static String toString(long key) {
+        return "(" + continent(key) + "," + country(key) + "," + market(key) + ")";
+    }
+}
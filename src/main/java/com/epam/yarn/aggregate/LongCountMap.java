@@ -0,0 +1,237 @@
+package com.epam.yarn.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from a {@code long} key to a {@code long} count.
+ * <p>
+ * Keys and counts are kept in two parallel arrays and collisions are resolved by linear probing,
+ * so counting an already known key allocates nothing. {@link Long#MIN_VALUE} marks free slots
+ * and therefore cannot be used as a key.
+ * <p>
+ * Capacity and resize policy: the number of slots is always a power of two and is at least twice
+ * the number of keys. When an insert would push the load factor above {@value #MAX_LOAD_FACTOR}
+ * the table doubles and all keys are rehashed, so the map never takes more than 64 bytes per key.
+ * Pass the expected number of distinct keys to the constructor to avoid rehashing for high
+ * cardinality inputs. The table cannot grow beyond {@value #MAX_CAPACITY} slots.
+ */
+public class LongCountMap {
+
+    public static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    private static final long FREE_KEY = Long.MIN_VALUE;
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private long[] counts;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public LongCountMap() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * @param expectedSize number of distinct keys the map is able to hold without resizing
+     */
+    public LongCountMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Adds {@code delta} to the count of the key, a missing key has the count of 0
+     */
+    public void add(long key, long delta) {
+        if (key == FREE_KEY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        counts[slot] = delta;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * @return count of the key or 0 if the key is missing
+     */
+    public long get(long key) {
+        if (key == FREE_KEY) {
+            return 0;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the key
+     *
+     * @return count of the removed key or 0 if the key is missing
+     */
+    public long remove(long key) {
+        if (key == FREE_KEY) {
+            return 0;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == FREE_KEY) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long count = counts[slot];
+
+        // Shifts the following keys of the probe sequence back, so no tombstones slow the lookups down
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != FREE_KEY) {
+            // A key may take the free slot only if the slot is between its home slot and the key
+            if (((next - slot(keys[next])) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                counts[free] = counts[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = FREE_KEY;
+        size--;
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void merge(LongCountMap other) {
+        other.forEach(this::add);
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE_KEY) {
+                consumer.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return cursor positioned before the first entry, the map must not be modified while it is iterated
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Removes all keys keeping the allocated capacity
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // Finalization step of MurmurHash3 spreads packed keys over the whole table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void resize() {
+        if (keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("Map cannot hold more than " + resizeThreshold + " keys");
+        }
+
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        allocate(keys.length << 1);
+
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            long key = oldKeys[oldSlot];
+            if (key != FREE_KEY) {
+                int slot = slot(key);
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                counts[slot] = oldCounts[oldSlot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(keys, FREE_KEY);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        long capacity = Long.highestOneBit(Math.max(2, (long) Math.ceil(expectedSize / MAX_LOAD_FACTOR)) * 2 - 1);
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size is too big: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+
+    public class Cursor {
+
+        private int slot = -1;
+
+        public boolean next() {
+            while (++slot < keys.length) {
+                if (keys[slot] != FREE_KEY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long key() {
+            return keys[slot];
+        }
+
+        public long count() {
+            return counts[slot];
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long count);
+    }
+}
@@ -0,0 +1,252 @@
+package com.epam.yarn.aggregate;
+
+/**
+ * Approximate counts of the most frequent {@code long} keys in a fixed number of counters,
+ * the Space-Saving algorithm of Metwally, Agrawal and El Abbadi.
+ * <p>
+ * A key without a counter takes over the counter with the lowest count once all of them are taken, and
+ * inherits that count as its error. So a count never underestimates the true one and overestimates it
+ * by at most the error of its counter, while a key without a counter occurs at most {@link #getMinCount()}
+ * times. Counting a stream, the error of every counter is at most {@code total / capacity}, so every key
+ * occurring more often than that keeps its counter.
+ * <p>
+ * The counters are kept in parallel arrays ordered by a min-heap of their counts and indexed by a
+ * {@link LongCountMap} sized for the capacity, so the memory is allocated once and counting allocates nothing.
+ * Sketches of several inputs are combined with {@link #merge(SpaceSaving)}, the merged counts still bound the true ones.
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    // Counters, the first size of them are taken
+    private final long[] keys;
+    private final long[] counts;
+    private final long[] errors;
+    // Counters ordered by their counts, the lowest one first, and the position of every counter in the heap
+    private final int[] heap;
+    private final int[] positions;
+    // Counter of every key plus 1, as a missing key has the count of 0
+    private final LongCountMap key2counter;
+    private int size;
+    private long total;
+    // Most a key without a counter may occur while counters are free, above 0 after merges only
+    private long maxMissingCount;
+
+    /**
+     * @param capacity number of the counters
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        positions = new int[capacity];
+        key2counter = new LongCountMap(capacity);
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    /**
+     * Counts {@code delta} occurrences of the key
+     *
+     * @throws IllegalArgumentException if delta is not positive
+     */
+    public void add(long key, long delta) {
+        if (delta <= 0) {
+            throw new IllegalArgumentException("Delta must be positive: " + delta);
+        }
+        total += delta;
+
+        int counter = (int) key2counter.get(key) - 1;
+        if (counter >= 0) {
+            counts[counter] += delta;
+        } else if (size < capacity) {
+            take(key, maxMissingCount + delta, maxMissingCount);
+            return;
+        } else {
+            counter = heap[0];
+            key2counter.remove(keys[counter]);
+            key2counter.add(key, counter + 1);
+            keys[counter] = key;
+            errors[counter] = counts[counter];
+            counts[counter] += delta;
+        }
+        siftDown(positions[counter]);
+    }
+
+    /**
+     * Adds the counts of the other sketch, the capacities may differ.
+     * <p>
+     * A key counted by one sketch only may have occurred up to {@link #getMinCount()} of the other one there,
+     * so that count is added to both its count and its error. The merged counters with the highest
+     * counts are kept, so the merged counts still bound the true ones, and the error of every counter
+     * is at most the sum of the bounds of the merged sketches. A key counted by neither sketch may have
+     * occurred up to the sum of their minimal counts, which stays the bound of the keys without a counter
+     * even if the merged counters do not take all the counters of this sketch.
+     */
+    public void merge(SpaceSaving other) {
+        long minCount = getMinCount();
+        long otherMinCount = other.getMinCount();
+
+        LongCountMap mergedCounts = new LongCountMap(size + other.size);
+        LongCountMap mergedErrors = new LongCountMap(size + other.size);
+        for (int counter = 0; counter < size; counter++) {
+            int otherCounter = (int) other.key2counter.get(keys[counter]) - 1;
+            mergedCounts.add(keys[counter],
+                    counts[counter] + (otherCounter >= 0 ? other.counts[otherCounter] : otherMinCount));
+            mergedErrors.add(keys[counter],
+                    errors[counter] + (otherCounter >= 0 ? other.errors[otherCounter] : otherMinCount));
+        }
+        for (int counter = 0; counter < other.size; counter++) {
+            if (key2counter.get(other.keys[counter]) == 0) {
+                mergedCounts.add(other.keys[counter], other.counts[counter] + minCount);
+                mergedErrors.add(other.keys[counter], other.errors[counter] + minCount);
+            }
+        }
+
+        long mergedTotal = total + other.total;
+        clear();
+        total = mergedTotal;
+        maxMissingCount = minCount + otherMinCount;
+        TopK kept = new TopK(capacity);
+        kept.offerAll(mergedCounts);
+        kept.forEach((key, count) -> take(key, count, mergedErrors.get(key)));
+    }
+
+    /**
+     * Restores a counter written out of {@link #key(int)}, {@link #count(int)} and {@link #error(int)},
+     * the total is restored with {@link #addTotal(long)}
+     *
+     * @throws IllegalStateException if all the counters are taken or the key has a counter already
+     */
+    public void restore(long key, long count, long error) {
+        if (size == capacity || key2counter.get(key) != 0) {
+            throw new IllegalStateException("Cannot restore the counter of key " + key);
+        }
+        take(key, count, error);
+    }
+
+    public void addTotal(long delta) {
+        total += delta;
+    }
+
+    /**
+     * Restores the bound of the keys without a counter written out of {@link #getMinCount()}
+     */
+    public void restoreMinCount(long minCount) {
+        maxMissingCount = Math.max(maxMissingCount, minCount);
+    }
+
+    /**
+     * @return number of the taken counters
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return sum of all the counted occurrences
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the most a key without a counter may occur: the lowest count once all the counters are taken,
+     * 0 before unless the sketch merged other ones
+     */
+    public long getMinCount() {
+        return size == capacity ? Math.max(counts[heap[0]], maxMissingCount) : maxMissingCount;
+    }
+
+    /**
+     * @param counter counter in range [0, {@link #size()})
+     */
+    public long key(int counter) {
+        return keys[counter];
+    }
+
+    public long count(int counter) {
+        return counts[counter];
+    }
+
+    public long error(int counter) {
+        return errors[counter];
+    }
+
+    /**
+     * @return counter of the key or -1 if the key has none
+     */
+    public int counterOf(long key) {
+        return (int) key2counter.get(key) - 1;
+    }
+
+    /**
+     * Frees all the counters keeping the allocated memory
+     */
+    public void clear() {
+        key2counter.clear();
+        size = 0;
+        total = 0;
+        maxMissingCount = 0;
+    }
+
+    private void take(long key, long count, long error) {
+        int counter = size++;
+        keys[counter] = key;
+        counts[counter] = count;
+        errors[counter] = error;
+        key2counter.add(key, counter + 1);
+        heap[counter] = counter;
+        positions[counter] = counter;
+        siftUp(counter);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[heap[position]]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int lowest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[heap[left]] < counts[heap[lowest]]) {
+                lowest = left;
+            }
+            if (right < size && counts[heap[right]] < counts[heap[lowest]]) {
+                lowest = right;
+            }
+            if (lowest == position) {
+                return;
+            }
+            swap(position, lowest);
+            position = lowest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int counter = heap[i];
+        heap[i] = heap[j];
+        heap[j] = counter;
+        positions[heap[i]] = i;
+        positions[heap[j]] = j;
+    }
+}
@@ -0,0 +1,137 @@
+package com.epam.yarn.aggregate;
+
+import java.util.Arrays;
+
+/**
+ * Selects the k entries with the highest counts out of a stream of {@code long} keys and counts.
+ * <p>
+ * The selected entries are kept in a bounded min-heap of two parallel arrays, rooted at the lowest
+ * ranked one, so offering n entries takes O(n log k) time and allocates nothing once the heap is full.
+ * Entries are ranked by count, higher first, and equal counts by key, lower first, so the selection
+ * does not depend on the order of the offers.
+ */
+public class TopK {
+
+    // The heap grows on demand up to k entries, a huge k does not allocate up front
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    /**
+     * @throws IllegalArgumentException if k is not positive
+     */
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of the selected entries must be positive: " + k);
+        }
+        this.k = k;
+        keys = new long[Math.min(k, INITIAL_CAPACITY)];
+        counts = new long[keys.length];
+    }
+
+    public void offer(long key, long count) {
+        if (size < k) {
+            if (size == keys.length) {
+                int capacity = (int) Math.min(k, 2L * keys.length);
+                keys = Arrays.copyOf(keys, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            keys[size] = key;
+            counts[size] = count;
+            siftUp(keys, counts, size++);
+        } else if (ranksHigher(key, count, keys[0], counts[0])) {
+            keys[0] = key;
+            counts[0] = count;
+            siftDown(keys, counts, 0, size);
+        }
+    }
+
+    public void offerAll(LongCountMap map) {
+        map.forEach(this::offer);
+    }
+
+    /**
+     * Merges the entries selected by another instance, the counts of the keys selected by both are summed.
+     * <p>
+     * The result is exact when every key is counted by one of the merged instances only, as the partial
+     * counts of disjoint key ranges are. Otherwise the count of a key which fell out of one of the inputs
+     * is underestimated, merge the full counts in that case and select the top of the sum.
+     */
+    public void merge(TopK other) {
+        LongCountMap sum = new LongCountMap(size + other.size);
+        for (int i = 0; i < size; i++) {
+            sum.add(keys[i], counts[i]);
+        }
+        for (int i = 0; i < other.size; i++) {
+            sum.add(other.keys[i], other.counts[i]);
+        }
+        size = 0;
+        offerAll(sum);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes the selected entries to the consumer, the highest ranked first
+     */
+    public void forEach(LongCountMap.EntryConsumer consumer) {
+        // Sorts copies of the heap, so entries can be offered afterwards
+        long[] sortedKeys = Arrays.copyOf(keys, size);
+        long[] sortedCounts = Arrays.copyOf(counts, size);
+        for (int end = size - 1; end > 0; end--) {
+            swap(sortedKeys, sortedCounts, 0, end);
+            siftDown(sortedKeys, sortedCounts, 0, end);
+        }
+        for (int i = 0; i < size; i++) {
+            consumer.accept(sortedKeys[i], sortedCounts[i]);
+        }
+    }
+
+    private static boolean ranksHigher(long key, long count, long otherKey, long otherCount) {
+        return count > otherCount || count == otherCount && key < otherKey;
+    }
+
+    private static void siftUp(long[] keys, long[] counts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksHigher(keys[parent], counts[parent], keys[index], counts[index])) {
+                return;
+            }
+            swap(keys, counts, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, long[] counts, int index, int size) {
+        while (true) {
+            int lowest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksHigher(keys[lowest], counts[lowest], keys[left], counts[left])) {
+                lowest = left;
+            }
+            if (right < size && ranksHigher(keys[lowest], counts[lowest], keys[right], counts[right])) {
+                lowest = right;
+            }
+            if (lowest == index) {
+                return;
+            }
+            swap(keys, counts, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(long[] keys, long[] counts, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+}
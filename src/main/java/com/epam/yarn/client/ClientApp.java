@@ -1,5 +1,7 @@
 package com.epam.yarn.client;
 
+import com.epam.yarn.LocalResources;
+import com.epam.yarn.query.QuerySpec;
 import org.apache.commons.cli.*;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -19,11 +21,19 @@ import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.exceptions.YarnException;
 import org.apache.hadoop.yarn.util.Records;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.epam.yarn.client.ClientOptions.*;
 import static com.epam.yarn.Constants.*;
+import static com.epam.yarn.TrackingProtocol.*;
 import static org.apache.hadoop.yarn.api.ApplicationConstants.CLASS_PATH_SEPARATOR;
 import static org.apache.hadoop.yarn.api.ApplicationConstants.LOG_DIR_EXPANSION_VAR;
 import static org.apache.hadoop.yarn.conf.YarnConfiguration.DEFAULT_YARN_CROSS_PLATFORM_APPLICATION_CLASSPATH;
@@ -33,6 +43,13 @@ public class ClientApp {
 
     private static final Log LOG = LogFactory.getLog(ClientApp.class);
 
+    // Directory of the uploaded jars under the application's directory in the home directory
+    private static final String JAR_CACHE_DIR_NAME = "jars";
+
+    // Longest wait for the progress of the application master before the ResourceManager is asked again
+    private static final long STATUS_WAIT_MS = 30_000;
+    private static final int STATUS_CONNECT_TIMEOUT_MS = 10_000;
+
     private final long clientStartTime = System.currentTimeMillis();
 
     private YarnClient yarnClient;
@@ -64,20 +81,67 @@ public class ClientApp {
     /* No. of containers in which the HelloYarn needs to be executed */
     private int numContainers;
 
+    /* CSV reader used by the containers */
+    private String csvReader;
+
+    /* File, directory or glob to analyze */
+    private String input;
+
     /* Timeout threshold for client. Kill app after time interval expires. */
     private long clientTimeout;
 
+    /* Uploaded jars unused for longer are deleted */
+    private long jarCacheMaxAgeMs;
+
+    /* Number of uploaded jars to keep */
+    private int jarCacheMaxEntries;
+
+    /* Whether the application master keeps its containers and waits for the queries */
+    private boolean session;
+
+    /* Running session the query or the stop is sent to */
+    private String sessionApp;
+
+    /* Whether the session is stopped instead of queried */
+    private boolean stopSession;
+
+    /* Number of the most booked hotels to report */
+    private int topK;
+
+    /* Number of the hotels counted approximately, 0 if all of them are counted exactly */
+    private int sketchCapacity;
+
+    /* Query the containers run instead of counting the bookings of couples per hotel, null if there is none */
+    private QuerySpec query;
+
+    /* Bounds of the interval between the application reports */
+    private int minPollIntervalMs;
+    private int maxPollIntervalMs;
+
+    /* Whether the client waits for the progress reported by the application master */
+    private boolean amStatus;
+
+    /* Completed tasks the application master reported last */
+    private int reportedTasks = -1;
+
     /* Command line options */
     private Options opts;
 
     public ClientApp() {
-        createYarnClient();
+        this(new YarnConfiguration());
+    }
+
+    /**
+     * @param conf configuration of the cluster to submit the application to
+     */
+    public ClientApp(Configuration conf) {
+        createYarnClient(conf);
         initOptions();
     }
 
-    private void createYarnClient() {
+    private void createYarnClient(Configuration conf) {
         yarnClient = YarnClient.createYarnClient();
-        conf = new YarnConfiguration();
+        this.conf = conf;
         yarnClient.init(conf);
     }
 
@@ -93,6 +157,33 @@ public class ClientApp {
         opts.addOption(CONTAINER_MEMORY.getName(), true, "Amount of memory in MB to be requested to run the HelloYarn");
         opts.addOption(CONTAINER_VCORES.getName(), true, "Amount of virtual cores to be requested to run the HelloYarn");
         opts.addOption(NUM_CONTAINERS.getName(), true, "No. of containers on which the HelloYarn needs to be executed");
+        opts.addOption(CSV_READER.getName(), true, "CSV reader used by the containers: bytes (default) or commons");
+        opts.addOption(INPUT.getName(), true, "File, directory or glob to analyze. Default " + INPUT.getDefault());
+        opts.addOption(JAR_CACHE_MAX_AGE_HOURS.getName(), true,
+                "Uploaded jars unused for longer are deleted. Default " + JAR_CACHE_MAX_AGE_HOURS.getDefault());
+        opts.addOption(JAR_CACHE_MAX_ENTRIES.getName(), true,
+                "Number of uploaded jars to keep. Default " + JAR_CACHE_MAX_ENTRIES.getDefault());
+        opts.addOption(SESSION.getName(), false,
+                "Start a session which keeps its containers and analyzes the inputs of the queries sent to it");
+        opts.addOption(SESSION_APP.getName(), true,
+                "Application id of a running session to analyze the input with instead of submitting an application");
+        opts.addOption(STOP_SESSION.getName(), false, "Stop the session given by " + SESSION_APP.getName());
+        opts.addOption(TOP_K.getName(), true,
+                "Number of the most booked hotels to report. Default " + TOP_K.getDefault());
+        opts.addOption(SKETCH_CAPACITY.getName(), true,
+                "Number of the most booked hotels counted approximately in fixed memory."
+                        + " Default " + SKETCH_CAPACITY.getDefault() + ", all the hotels are counted exactly");
+        opts.addOption(QUERY.getName(), true, "Query to run instead of counting the bookings of couples per hotel,"
+                + " for instance 'group_by=channel; where=is_booking=1; aggregate=count,distinct(user_id); top_k=5'."
+                + " Given with --" + SESSION_APP.getName() + ", runs instead of the query the session was started with");
+        opts.addOption(MIN_POLL_INTERVAL_MS.getName(), true,
+                "Interval between the application reports after a state change. Default "
+                        + MIN_POLL_INTERVAL_MS.getDefault());
+        opts.addOption(MAX_POLL_INTERVAL_MS.getName(), true,
+                "Longest interval between the application reports. Default " + MAX_POLL_INTERVAL_MS.getDefault());
+        opts.addOption(AM_STATUS.getName(), true,
+                "Wait for the progress reported by the application master instead of polling the ResourceManager"
+                        + " while the application runs. Default " + AM_STATUS.getDefault());
         opts.addOption(HELP.getName(), false, "Print usage");
     }
 
@@ -131,7 +222,35 @@ public class ClientApp {
                     + " Specified virtual cores=" + amVCores);
         }
 
-        if (!cliParser.hasOption(JAR.getName())) {
+        session = cliParser.hasOption(SESSION.getName());
+        sessionApp = cliParser.getOptionValue(SESSION_APP.getName());
+        stopSession = cliParser.hasOption(STOP_SESSION.getName());
+        topK = Integer.parseInt(cliParser.getOptionValue(TOP_K.getName(), TOP_K.getDefault()));
+        if (topK < 1) {
+            throw new IllegalArgumentException("Invalid number of the most booked hotels specified, exiting."
+                    + " Specified top_k=" + topK);
+        }
+        sketchCapacity = Integer.parseInt(
+                cliParser.getOptionValue(SKETCH_CAPACITY.getName(), SKETCH_CAPACITY.getDefault()));
+        if (sketchCapacity < 0) {
+            throw new IllegalArgumentException("Invalid sketch capacity specified, exiting."
+                    + " Specified sketch_capacity=" + sketchCapacity);
+        }
+        query = cliParser.hasOption(QUERY.getName()) ? QuerySpec.parse(cliParser.getOptionValue(QUERY.getName())) : null;
+        minPollIntervalMs = Integer.parseInt(
+                cliParser.getOptionValue(MIN_POLL_INTERVAL_MS.getName(), MIN_POLL_INTERVAL_MS.getDefault()));
+        maxPollIntervalMs = Integer.parseInt(
+                cliParser.getOptionValue(MAX_POLL_INTERVAL_MS.getName(), MAX_POLL_INTERVAL_MS.getDefault()));
+        if (minPollIntervalMs <= 0 || maxPollIntervalMs < minPollIntervalMs) {
+            throw new IllegalArgumentException("Invalid poll intervals specified, exiting."
+                    + " Specified min=" + minPollIntervalMs + ", max=" + maxPollIntervalMs);
+        }
+        amStatus = Boolean.parseBoolean(cliParser.getOptionValue(AM_STATUS.getName(), AM_STATUS.getDefault()));
+        if (stopSession && sessionApp == null) {
+            throw new IllegalArgumentException("No session specified to stop");
+        }
+
+        if (sessionApp == null && !cliParser.hasOption(JAR.getName())) {
             throw new IllegalArgumentException("No jar file specified for application master");
         }
 
@@ -148,7 +267,13 @@ public class ClientApp {
                     + ", numContainer=" + numContainers);
         }
 
+        csvReader = cliParser.getOptionValue(CSV_READER.getName(), CSV_READER.getDefault());
+        input = cliParser.getOptionValue(INPUT.getName(), INPUT.getDefault());
         clientTimeout = Integer.parseInt(cliParser.getOptionValue(TIMEOUT.getName(), TIMEOUT.getDefault()));
+        jarCacheMaxAgeMs = TimeUnit.HOURS.toMillis(Long.parseLong(
+                cliParser.getOptionValue(JAR_CACHE_MAX_AGE_HOURS.getName(), JAR_CACHE_MAX_AGE_HOURS.getDefault())));
+        jarCacheMaxEntries = Integer.parseInt(
+                cliParser.getOptionValue(JAR_CACHE_MAX_ENTRIES.getName(), JAR_CACHE_MAX_ENTRIES.getDefault()));
 
         return true;
     }
@@ -163,6 +288,10 @@ public class ClientApp {
         LOG.info("Running Client");
         yarnClient.start();
 
+        if (sessionApp != null) {
+            return runOnSession(ApplicationId.fromString(sessionApp));
+        }
+
         YarnClientApplication app = yarnClient.createApplication();
         GetNewApplicationResponse appResponse = app.getNewApplicationResponse();
 
@@ -192,7 +321,7 @@ public class ClientApp {
         LOG.info("Submitting application to ASM");
         yarnClient.submitApplication(appContext);
 
-        return monitorApplication(appId);
+        return session ? awaitSession(appId) : monitorApplication(appId);
     }
 
 
@@ -247,6 +376,17 @@ public class ClientApp {
         vargs.add("--container_vcores " + containerVirtualCores);
         vargs.add("--num_containers " + numContainers);
         vargs.add("--priority 0");
+        vargs.add("--csv_reader " + csvReader);
+        vargs.add("--top_k " + topK);
+        vargs.add("--sketch_capacity " + sketchCapacity);
+        if (query != null) {
+            vargs.add("--query " + shellQuote(query.toString()));
+        }
+        // Quoted, so that the shell launching the master does not expand the glob
+        vargs.add("--input " + shellQuote(input));
+        if (session) {
+            vargs.add("--session");
+        }
         vargs.add("1>" + LOG_DIR_EXPANSION_VAR + "/AppMaster.stdout");
         vargs.add("2>" + LOG_DIR_EXPANSION_VAR + "/AppMaster.stderr");
 
@@ -272,27 +412,28 @@ public class ClientApp {
                                      String resources)
             throws IOException {
 
-        String suffix = appName + "/" + appId + "/" + fileDstName;
-        Path dst = new Path(fs.getHomeDirectory(), suffix);
-
+        Path dst;
         if (StringUtils.isEmpty(fileSrcPath)) {
+            String suffix = appName + "/" + appId + "/" + fileDstName;
+            dst = new Path(fs.getHomeDirectory(), suffix);
             try (FSDataOutputStream out = FileSystem.create(fs, dst, new FsPermission((short)0710))) {
                 out.writeUTF(resources);
             }
         }
         else {
-            fs.copyFromLocalFile(new Path(fileSrcPath), dst);
+            // Unchanged files are uploaded once and shared by the submissions
+            JarCache jarCache = new JarCache(fs, new Path(fs.getHomeDirectory(), appName + "/" + JAR_CACHE_DIR_NAME),
+                    jarCacheMaxAgeMs, jarCacheMaxEntries);
+            dst = jarCache.upload(fileSrcPath);
+            try {
+                jarCache.clean(dst);
+            } catch (IOException e) {
+                LOG.warn("Failed to clean the uploaded jars", e);
+            }
         }
 
-        FileStatus scFileStatus = fs.getFileStatus(dst);
-        LocalResource scRsrc =
-                LocalResource.newInstance(
-                        URL.fromURI(dst.toUri()),
-                        LocalResourceType.FILE,
-                        LocalResourceVisibility.APPLICATION,
-                        scFileStatus.getLen(),
-                        scFileStatus.getModificationTime());
-        localResources.put(fileDstName, scRsrc);
+        // Same visibility as the one the master chooses for its containers, so the file is localized once per node
+        localResources.put(fileDstName, LocalResources.newFileResource(fs, fs.makeQualified(dst)));
     }
 
 
@@ -336,6 +477,9 @@ public class ClientApp {
 
     /**
      * Monitor the submitted application for completion.
+     * While the application runs, the client waits for the progress its master reports at the tracking URL
+     * and asks the ResourceManager only when the master is quiet, otherwise the reports are requested
+     * with the intervals of the {@link PollScheduler}.
      * Kill application if time expires.
      * @param appId Application Id of application to be monitored
      * @return true if application completed successfully
@@ -343,15 +487,10 @@ public class ClientApp {
      * @throws java.io.IOException
      */
     private boolean monitorApplication(ApplicationId appId) throws YarnException, IOException {
+        PollScheduler pollScheduler = new PollScheduler(minPollIntervalMs, maxPollIntervalMs);
+        boolean trackMaster = amStatus;
 
         while (true) {
-            // Check app status every 1 second.
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                LOG.error("Thread sleep in monitoring loop interrupted");
-            }
-
             ApplicationReport report = yarnClient.getApplicationReport(appId);
             YarnApplicationState state = report.getYarnApplicationState();
             FinalApplicationStatus dsStatus = report.getFinalApplicationStatus();
@@ -383,7 +522,175 @@ public class ClientApp {
                 forceKillApplication(appId);
                 return false;
             }
+
+            if (trackMaster && YarnApplicationState.RUNNING == state
+                    && StringUtils.isNotEmpty(report.getOriginalTrackingUrl())) {
+                try {
+                    if (!awaitMasterProgress(trackingUrl(report))) {
+                        // The master is quiet, make sure it is still alive
+                        continue;
+                    }
+                    // The master is finishing, only its final status is left
+                    pollScheduler.reset();
+                } catch (IOException | RuntimeException e) {
+                    LOG.info("Application master does not report its progress, polling the ResourceManager: " + e);
+                }
+                trackMaster = false;
+            }
+
+            try {
+                Thread.sleep(pollScheduler.next(state));
+            } catch (InterruptedException e) {
+                LOG.error("Thread sleep in monitoring loop interrupted");
+            }
+        }
+    }
+
+    /**
+     * Logs the progress the master reports until all the tasks are committed or the master is quiet
+     * for {@link #STATUS_WAIT_MS}
+     * @return true if all the tasks are committed
+     */
+    private boolean awaitMasterProgress(String url) throws IOException {
+        while (true) {
+            long waitMs = Math.min(STATUS_WAIT_MS, clientStartTime + clientTimeout - System.currentTimeMillis());
+            if (waitMs <= 0) {
+                return false;
+            }
+
+            URL status = new URL(url + STATUS_PATH + "?" + COMPLETED_PARAM + "=" + reportedTasks
+                    + "&" + WAIT_MS_PARAM + "=" + waitMs);
+            HttpURLConnection connection = (HttpURLConnection) status.openConnection();
+            connection.setConnectTimeout(STATUS_CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout((int) waitMs + STATUS_CONNECT_TIMEOUT_MS);
+            String[] response;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                response = reader.readLine().split(" ");
+            }
+            if (!PROGRESS_RESPONSE.equals(response[0]) && !DONE_RESPONSE.equals(response[0])) {
+                throw new IOException("Unexpected status " + String.join(" ", response));
+            }
+
+            int completed = Integer.parseInt(response[1]);
+            boolean changed = completed != reportedTasks;
+            if (changed) {
+                LOG.info("Completed " + completed + " of " + response[2] + " tasks");
+                reportedTasks = completed;
+            }
+            if (DONE_RESPONSE.equals(response[0])) {
+                return true;
+            }
+            if (!changed) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Waits until the session accepts the queries at its tracking URL.
+     * Kill application if time expires.
+     * @param appId Application Id of the session
+     * @return true if the session is running
+     */
+    private boolean awaitSession(ApplicationId appId) throws YarnException, IOException {
+        PollScheduler pollScheduler = new PollScheduler(minPollIntervalMs, maxPollIntervalMs);
+
+        while (true) {
+            ApplicationReport report = yarnClient.getApplicationReport(appId);
+            YarnApplicationState state = report.getYarnApplicationState();
+            if (YarnApplicationState.RUNNING == state && StringUtils.isNotEmpty(report.getOriginalTrackingUrl())) {
+                LOG.info("Session " + appId + " is running at " + trackingUrl(report)
+                        + ", send the queries with --" + SESSION_APP.getName() + " " + appId);
+                return true;
+            }
+            if (YarnApplicationState.FINISHED == state
+                    || YarnApplicationState.KILLED == state
+                    || YarnApplicationState.FAILED == state) {
+                LOG.info("Session did not start. YarnState=" + state + ", diagnostics=" + report.getDiagnostics());
+                return false;
+            }
+
+            if (System.currentTimeMillis() > (clientStartTime + clientTimeout)) {
+                LOG.info("Reached client specified timeout for session. Killing application " + appId);
+                forceKillApplication(appId);
+                return false;
+            }
+
+            try {
+                Thread.sleep(pollScheduler.next(state));
+            } catch (InterruptedException e) {
+                LOG.error("Thread sleep in monitoring loop interrupted");
+            }
+        }
+    }
+
+    /**
+     * Analyzes the input with the containers of the running session, or stops it.
+     * The most booked hotels, or the top groups of the query, are printed to the standard output.
+     * @param appId Application Id of the session
+     * @return true if the query succeeded
+     */
+    private boolean runOnSession(ApplicationId appId) throws YarnException, IOException {
+        ApplicationReport report = yarnClient.getApplicationReport(appId);
+        if (YarnApplicationState.RUNNING != report.getYarnApplicationState()
+                || StringUtils.isEmpty(report.getOriginalTrackingUrl())) {
+            LOG.error("Session " + appId + " is not running, state " + report.getYarnApplicationState());
+            return false;
+        }
+        String url = trackingUrl(report);
+
+        if (stopSession) {
+            try (BufferedReader reader = post(new URL(url + STOP_PATH))) {
+                LOG.info("Stopping session " + appId + ": " + reader.readLine());
+            }
+            return true;
+        }
+
+        LOG.info("Analyzing " + input + " with session " + appId);
+        String request = QUERY_PATH + "?" + INPUT_PARAM + "=" + URLEncoder.encode(input, StandardCharsets.UTF_8.name())
+                + "&" + TOP_K_PARAM + "=" + topK;
+        if (query != null) {
+            request += "&" + QUERY_PARAM + "=" + URLEncoder.encode(query.toString(), StandardCharsets.UTF_8.name());
+        }
+        boolean succeeded = false;
+        try (BufferedReader reader = post(new URL(url + request))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(PROGRESS_RESPONSE + ' ')) {
+                    String[] tasks = line.split(" ");
+                    LOG.info("Completed " + tasks[1] + " of " + tasks[2] + " tasks");
+                } else if (line.equals(RESULT_RESPONSE)) {
+                    succeeded = true;
+                } else if (line.startsWith(FAILED_RESPONSE + ' ')) {
+                    LOG.error("Query failed: " + line.substring(FAILED_RESPONSE.length() + 1));
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * @return the value in single quotes, an embedded quote closes the quoted text, is escaped and reopens it
+     */
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static String trackingUrl(ApplicationReport report) {
+        String url = report.getOriginalTrackingUrl();
+        return url.contains("://") ? url : "http://" + url;
+    }
+
+    private static BufferedReader post(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Session answered " + connection.getResponseCode() + " to " + url);
         }
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
     }
 
     /**
@@ -1,5 +1,8 @@
 package com.epam.yarn.client;
 
+import static com.epam.yarn.Constants.BOOKING_SOURCE;
+import static com.epam.yarn.Constants.TOP_HOTELS;
+
 public enum ClientOptions {
 
     APP_NAME ("appname", "HelloYarn"),
@@ -12,7 +15,20 @@ public enum ClientOptions {
     NUM_CONTAINERS ("num_containers", "1"),
     HELP ("help", ""),
     CONTAINER_MEMORY ("container_memory", "32"),
-    CONTAINER_VCORES ("container_vcores", "1");
+    CONTAINER_VCORES ("container_vcores", "1"),
+    CSV_READER ("csv_reader", "bytes"),
+    INPUT ("input", BOOKING_SOURCE),
+    JAR_CACHE_MAX_AGE_HOURS ("jar_cache_max_age_hours", "168"),
+    JAR_CACHE_MAX_ENTRIES ("jar_cache_max_entries", "10"),
+    SESSION ("session", ""),
+    SESSION_APP ("session_app", ""),
+    STOP_SESSION ("stop_session", ""),
+    TOP_K ("top_k", String.valueOf(TOP_HOTELS)),
+    SKETCH_CAPACITY ("sketch_capacity", "0"),
+    QUERY ("query", ""),
+    MIN_POLL_INTERVAL_MS ("min_poll_interval_ms", "200"),
+    MAX_POLL_INTERVAL_MS ("max_poll_interval_ms", "10000"),
+    AM_STATUS ("am_status", "true");
 
     private String name;
     private String defaultValue;
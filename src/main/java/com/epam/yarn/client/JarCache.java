@@ -0,0 +1,138 @@
+package com.epam.yarn.client;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Content addressed cache of the uploaded application jars.
+ * <p>
+ * A jar is uploaded once to {@code <dir>/<sha-256 of the content>.jar}, the later submissions of the same
+ * content reuse it. Every use updates the access time of the entry if the file system keeps access times.
+ * Entries unused for longer than the maximum age are deleted, as well as the least recently used ones
+ * above the maximum number of entries, unless they were used within {@link #MIN_IDLE_MS}, so that
+ * the jars of the running applications stay in place.
+ */
+class JarCache {
+
+    private static final Log LOG = LogFactory.getLog(JarCache.class);
+
+    private static final String EXTENSION = ".jar";
+
+    // Entries used more recently may still be localized by the containers of a running application
+    static final long MIN_IDLE_MS = 60 * 60 * 1000L;
+
+    private final FileSystem fs;
+    private final Path dir;
+    private final long maxAgeMs;
+    private final int maxEntries;
+
+    JarCache(FileSystem fs, Path dir, long maxAgeMs, int maxEntries) {
+        this.fs = fs;
+        this.dir = dir;
+        this.maxAgeMs = maxAgeMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Uploads the jar unless the cache already holds the same content
+     *
+     * @param localJar path of the jar on the local file system
+     * @return qualified path of the cached jar
+     */
+    Path upload(String localJar) throws IOException {
+        File jar = new File(localJar);
+        Path entry = fs.makeQualified(new Path(dir, digest(jar) + EXTENSION));
+
+        if (fs.exists(entry)) {
+            if (fs.getFileStatus(entry).getLen() == jar.length()) {
+                LOG.info("Reusing " + entry + " uploaded before");
+                touch(entry);
+                return entry;
+            }
+            // Left by an upload which was not completed
+            fs.delete(entry, false);
+        }
+
+        // Concurrent clients upload to their own hidden files, the rename publishes the entry at once
+        Path upload = new Path(dir, "." + entry.getName() + "." + UUID.randomUUID());
+        fs.copyFromLocalFile(false, true, new Path(jar.getAbsolutePath()), upload);
+        if (!fs.rename(upload, entry)) {
+            fs.delete(upload, false);
+            if (!fs.exists(entry)) {
+                throw new IOException("Could not rename " + upload + " to " + entry);
+            }
+        }
+        LOG.info("Uploaded " + localJar + " to " + entry);
+        return entry;
+    }
+
+    /**
+     * Deletes the expired entries and the least recently used ones above the maximum number of entries
+     *
+     * @param keep entry in use by the submitted application
+     */
+    void clean(Path keep) throws IOException {
+        if (!fs.exists(dir)) {
+            return;
+        }
+        FileStatus[] entries = fs.listStatus(dir);
+        Arrays.sort(entries, Comparator.comparingLong(JarCache::lastUse).reversed());
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries.length; i++) {
+            Path path = entries[i].getPath();
+            long idleMs = now - lastUse(entries[i]);
+            boolean expired = idleMs > maxAgeMs || i >= maxEntries && idleMs > MIN_IDLE_MS;
+            if (expired && !path.getName().equals(keep.getName()) && fs.delete(path, false)) {
+                LOG.info("Deleted cached jar " + path + " unused for " + idleMs / 1000 + " s");
+            }
+        }
+    }
+
+    private void touch(Path entry) {
+        try {
+            fs.setTimes(entry, -1, System.currentTimeMillis());
+        } catch (IOException e) {
+            // Access times are disabled, the entries expire by the time of the upload then
+            LOG.debug("Could not update the access time of " + entry, e);
+        }
+    }
+
+    private static long lastUse(FileStatus entry) {
+        return Math.max(entry.getAccessTime(), entry.getModificationTime());
+    }
+
+    private static String digest(File jar) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new FileInputStream(jar)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.epam.yarn.client;
+
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the interval between the application reports the client requests from the ResourceManager.
+ * <p>
+ * The client polls with the minimal interval whenever the state of the application changes and doubles
+ * the interval on every report with the same state, up to {@link #STARTING_MAX_INTERVAL_MS} while
+ * the application is starting and up to the maximal interval while it is running. The intervals are
+ * shortened by up to {@link #JITTER} of their length, so that many clients do not poll at the same moments.
+ */
+class PollScheduler {
+
+    // The master is usually launched within seconds, the client learns about it soon
+    static final int STARTING_MAX_INTERVAL_MS = 1000;
+    static final double JITTER = 0.1;
+
+    private final int minIntervalMs;
+    private final int maxIntervalMs;
+    private YarnApplicationState state;
+    private int intervalMs;
+
+    PollScheduler(int minIntervalMs, int maxIntervalMs) {
+        if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException(
+                    "Illegal poll intervals, min=" + minIntervalMs + ", max=" + maxIntervalMs);
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.intervalMs = minIntervalMs;
+    }
+
+    /**
+     * @param state state of the application in the last report
+     * @return interval before the next report
+     */
+    int next(YarnApplicationState state) {
+        int limitMs = state == YarnApplicationState.RUNNING
+                ? maxIntervalMs : Math.max(minIntervalMs, Math.min(maxIntervalMs, STARTING_MAX_INTERVAL_MS));
+        intervalMs = state != this.state ? minIntervalMs : (int) Math.min(limitMs, 2L * intervalMs);
+        this.state = state;
+        return intervalMs - (int) (ThreadLocalRandom.current().nextDouble() * JITTER * intervalMs);
+    }
+
+    /**
+     * Polls with the minimal interval again, for instance once the master reported that it is finishing
+     */
+    void reset() {
+        state = null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.container.csv.RowAggregator;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Analysis a container runs over the splits: the rows it reads, the partial results it writes for the
+ * application master and the report it prints.
+ *
+ * @param <A> type of the aggregator itself
+ */
+public interface AnalysisAggregator<A extends AnalysisAggregator<A>> extends RowAggregator<A> {
+
+    /**
+     * @return columns the rows must be projected to, in this order
+     */
+    String[] getColumns();
+
+    /**
+     * @return new aggregator analyzing the same way as this one, for instance for another thread of a scan
+     */
+    A newAggregator();
+
+    /**
+     * Resets the aggregator for the next split keeping the allocated capacity
+     */
+    void clear();
+
+    /**
+     * Writes the partial results the application master merges
+     */
+    void write(FileSystem fs, Path path) throws IOException;
+
+    /**
+     * @return lines of the report of the k top results
+     */
+    List<String> report(int k);
+
+    long getBadRecordsNumber();
+}
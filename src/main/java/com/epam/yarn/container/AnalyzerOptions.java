@@ -0,0 +1,32 @@
+package com.epam.yarn.container;
+
+import static com.epam.yarn.Constants.BOOKING_SOURCE;
+import static com.epam.yarn.Constants.TOP_HOTELS;
+
+public enum AnalyzerOptions {
+    INPUT ("input", BOOKING_SOURCE),
+    SPLIT ("split", ""),
+    OUTPUT ("output", ""),
+    SPLIT_QUEUE ("split_queue", ""),
+    CSV_READER ("csv_reader", "bytes"),
+    THREADS ("threads", "1"),
+    TOP_K ("top_k", String.valueOf(TOP_HOTELS)),
+    SKETCH_CAPACITY ("sketch_capacity", "0"),
+    QUERY ("query", "");
+
+    private String name;
+    private String defaultValue;
+
+    AnalyzerOptions(String name, String defaultValue) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDefault() {
+        return defaultValue;
+    }
+}
@@ -0,0 +1,158 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.container.columnar.ColumnarCache;
+import com.epam.yarn.container.columnar.ColumnarReader;
+import com.epam.yarn.container.csv.CsvReaderType;
+import com.epam.yarn.container.csv.ParallelCsvScanner;
+import com.epam.yarn.container.csv.RowReader;
+import com.epam.yarn.split.FileSplit;
+import com.epam.yarn.split.InputFiles;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Analyzes splits one after another in the same JVM.
+ * <p>
+ * A container analyzes every split the queue gives it with one worker, so the parsing threads, their chunks
+ * and the headers of the files are kept between the splits and the JIT compiled code keeps serving them.
+ * The worker lives until the queue drains.
+ */
+class AnalyzerWorker implements Closeable {
+
+    private static final Log LOG = LogFactory.getLog(AnalyzerWorker.class);
+
+    private final Configuration conf;
+    private final FileSystem fs;
+    private final CsvReaderType readerType;
+    // Parses the splits with several threads, null if a single thread reads them
+    private final ParallelCsvScanner scanner;
+    // Header lines of the files the splits were cut from
+    private final Map<Path, byte[]> headers = new HashMap<>();
+
+    /**
+     * @param threads number of threads parsing a split, used by the bytes reader only
+     */
+    AnalyzerWorker(Configuration conf, FileSystem fs, CsvReaderType readerType, int threads) {
+        this.conf = conf;
+        this.fs = fs;
+        this.readerType = readerType;
+        this.scanner = threads > 1 && readerType == CsvReaderType.BYTES ? new ParallelCsvScanner(threads) : null;
+    }
+
+    /**
+     * Feeds the rows of the split to the aggregator. Rows of the columnar cache blocks which the aggregator
+     * rejects as a whole are not fed, so the malformed ones among them are not counted as bad records
+     * and the number of the bad records may be lower with a cache than without it.
+     *
+     * @param progress counts the processed bytes of the split, may be {@code null}
+     */
+    <A extends AnalysisAggregator<A>> void analyze(FileSplit split, A aggregator, TaskProgress progress)
+            throws IOException, InterruptedException {
+        ColumnarReader cached = openCache(split, aggregator.getColumns());
+        if (cached != null) {
+            LOG.info("Reading columnar cache of " + split.getPath());
+            cached.setBlockFilter(aggregator::mayMatch);
+            try (ColumnarReader row = cached) {
+                while (row.next()) {
+                    aggregator.accept(row);
+                    if (progress != null) {
+                        progress.setBytes(Math.max(0, row.getSourceOffset() - split.getStart()));
+                    }
+                }
+            }
+            return;
+        }
+
+        InputStream in = openSplit(split);
+        if (progress != null) {
+            in = progress.track(in);
+        }
+        if (scanner != null) {
+            aggregator.merge(scanner.scan(in, aggregator.getColumns(), aggregator::newAggregator));
+        } else {
+            try (RowReader row = readerType.open(in, aggregator.getColumns())) {
+                while (row.next()) {
+                    aggregator.accept(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return reader of the split from the columnar cache of the file, {@code null} if there is no usable cache
+     * caching the columns, a corrupt or truncated cache or one of another version is not usable either
+     */
+    private ColumnarReader openCache(FileSplit split, String[] columns) throws IOException {
+        Path cache = ColumnarCache.find(fs, split.getPath());
+        if (cache == null) {
+            return null;
+        }
+        FSDataInputStream in = fs.open(cache);
+        try {
+            return new ColumnarReader(in, fs.getFileStatus(cache).getLen(), split, columns);
+        } catch (IllegalArgumentException e) {
+            LOG.info("Ignoring columnar cache " + cache + ": " + e.getMessage());
+            in.close();
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Ignoring unreadable columnar cache " + cache, e);
+            in.close();
+            return null;
+        }
+    }
+
+    /**
+     * Opens the decompressed lines of the split. Splits which do not start at the beginning of the file
+     * are prefixed with the header line so that columns can still be resolved by name.
+     */
+    private InputStream openSplit(FileSplit split) throws IOException {
+        InputStream lines = InputFiles.openSplit(conf, fs, split);
+        if (split.getStart() == 0) {
+            return lines;
+        }
+        byte[] header = headers.get(split.getPath());
+        if (header == null) {
+            header = readHeader(split.getPath());
+            headers.put(split.getPath(), header);
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(header), lines);
+    }
+
+    private byte[] readHeader(Path path) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (InputStream in = new BufferedInputStream(InputFiles.open(conf, fs, path))) {
+            int b;
+            while ((b = in.read()) != -1) {
+                header.write(b);
+                if (b == '\n') {
+                    break;
+                }
+            }
+        }
+        return header.toByteArray();
+    }
+
+    /**
+     * Stops the parsing threads
+     */
+    @Override
+    public void close() {
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+}
@@ -1,84 +1,243 @@
 package com.epam.yarn.container;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.Charsets;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.tuple.Triple;
+import com.epam.yarn.container.csv.CsvReaderType;
+import com.epam.yarn.query.QuerySpec;
+import com.epam.yarn.split.FileSplit;
+import com.epam.yarn.split.InputSplitter;
+import com.epam.yarn.split.SplitTask;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.yarn.api.ApplicationConstants;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.epam.yarn.container.AnalyzerOptions.CSV_READER;
+import static com.epam.yarn.container.AnalyzerOptions.INPUT;
+import static com.epam.yarn.container.AnalyzerOptions.OUTPUT;
+import static com.epam.yarn.container.AnalyzerOptions.QUERY;
+import static com.epam.yarn.container.AnalyzerOptions.SKETCH_CAPACITY;
+import static com.epam.yarn.container.AnalyzerOptions.SPLIT;
+import static com.epam.yarn.container.AnalyzerOptions.SPLIT_QUEUE;
+import static com.epam.yarn.container.AnalyzerOptions.THREADS;
+import static com.epam.yarn.container.AnalyzerOptions.TOP_K;
 
 public class BookingAnalyzer {
 
-    public static void main(String[] args) throws IOException {
+    private static final Log LOG = LogFactory.getLog(BookingAnalyzer.class);
+
+    // Interval between the progress reports of the running task to the split queue
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    public static void main(String[] args) throws IOException, InterruptedException, ParseException {
+        Options opts = new Options();
+        opts.addOption(INPUT.getName(), true,
+                "File, directory or glob to analyze when no split is given. Default " + INPUT.getDefault());
+        opts.addOption(SPLIT.getName(), true, "Range of an input file to analyze, may be repeated");
+        opts.addOption(OUTPUT.getName(), true, "File to write the partial results to");
+        opts.addOption(SPLIT_QUEUE.getName(), true,
+                "URL of the split queue of the application master to pull the splits from instead of --split");
+        opts.addOption(CSV_READER.getName(), true, "CSV reader: bytes (default) or commons");
+        opts.addOption(THREADS.getName(), true,
+                "Number of threads parsing the input, used by the bytes reader only. Default 1");
+        opts.addOption(TOP_K.getName(), true, "Number of the most booked hotels to print. Default " + TOP_K.getDefault());
+        opts.addOption(SKETCH_CAPACITY.getName(), true,
+                "Number of the most booked hotels counted approximately in fixed memory."
+                        + " Default " + SKETCH_CAPACITY.getDefault() + ", all the hotels are counted exactly");
+        opts.addOption(QUERY.getName(), true,
+                "Query to run instead of counting the bookings of couples per hotel, see QuerySpec");
+        CommandLine cliParser = new GnuParser().parse(opts, args);
+
         Configuration conf = new Configuration();
         FileSystem fs = FileSystem.get(conf);
 
-        Path src = fs.makeQualified(new Path("/user/files/train.csv"));
-        Map<Triple<Integer, Integer, Integer>, Long> hotelId2count = new HashMap<>();
-        int badRecordsNumber = 0;
-
-        try (FSDataInputStream in = fs.open(src)) {
-            CSVParser parser = CSVParser.parse(in, Charsets.UTF_8, CSVFormat.RFC4180.withHeader());
-            for (CSVRecord record : parser) {
-                int hotelContinent = -1;
-                int hotelCountry = -1;
-                int hotelMarket = -1;
-                int srchAdutlsCnt = -1;
-                boolean isBooking = false;
-
-                for (Map.Entry<String, String> entry : record.toMap().entrySet()) {
-
-                    try {
-                        switch (entry.getKey()) {
-                            case "hotel_continent":
-                                if (StringUtils.isNotEmpty(entry.getValue()))
-                                    hotelContinent = Integer.parseInt(entry.getValue());
-                                break;
-                            case "hotel_country":
-                                if (StringUtils.isNotEmpty(entry.getValue()))
-                                    hotelCountry = Integer.parseInt(entry.getValue());
-                                break;
-                            case "hotel_market":
-                                if (StringUtils.isNotEmpty(entry.getValue()))
-                                    hotelMarket = Integer.parseInt(entry.getValue());
-                                break;
-                            case "srch_adults_cnt":
-                                if (StringUtils.isNotEmpty(entry.getValue()))
-                                    srchAdutlsCnt = Integer.parseInt(entry.getValue());
-                                break;
-                            case "is_booking":
-                                if (StringUtils.isNotEmpty(entry.getValue()))
-                                    isBooking = Integer.parseInt(entry.getValue()) == 1;
-                                break;
-                        }
-                    } catch (NumberFormatException e) {
-                        badRecordsNumber++;
-                        break;
+        CsvReaderType readerType = CsvReaderType.of(
+                cliParser.getOptionValue(CSV_READER.getName(), CSV_READER.getDefault()));
+
+        int threads = Integer.parseInt(cliParser.getOptionValue(THREADS.getName(), THREADS.getDefault()));
+        int topK = Integer.parseInt(cliParser.getOptionValue(TOP_K.getName(), TOP_K.getDefault()));
+        int sketchCapacity = Integer.parseInt(
+                cliParser.getOptionValue(SKETCH_CAPACITY.getName(), SKETCH_CAPACITY.getDefault()));
+
+        try (AnalyzerWorker worker = new AnalyzerWorker(conf, fs, readerType, threads)) {
+            if (cliParser.hasOption(QUERY.getName())) {
+                QuerySpec query = QuerySpec.parse(cliParser.getOptionValue(QUERY.getName()));
+                analyze(conf, fs, cliParser, worker, new QueryAggregator(query), query,
+                        query.getTopK() > 0 ? query.getTopK() : topK);
+            } else {
+                analyze(conf, fs, cliParser, worker, new CouplesBookingsAggregator(sketchCapacity), null, topK);
+            }
+        }
+    }
+
+    /**
+     * Runs the analysis of the aggregator, prints its report and writes its partial results
+     *
+     * @param query query of the aggregator, null if it counts the bookings of couples per hotel
+     */
+    private static <A extends AnalysisAggregator<A>> void analyze(Configuration conf, FileSystem fs,
+            CommandLine cliParser, AnalyzerWorker worker, A aggregator, QuerySpec query, int topK)
+            throws IOException, InterruptedException {
+        if (cliParser.hasOption(SPLIT_QUEUE.getName())) {
+            processQueue(fs, cliParser.getOptionValue(SPLIT_QUEUE.getName()), worker, aggregator, query);
+        } else {
+            analyzeSplits(conf, fs, cliParser, worker, aggregator);
+        }
+
+        aggregator.report(topK).forEach(System.out::println);
+        System.out.println("Amount of bad records: " + aggregator.getBadRecordsNumber());
+
+        if (cliParser.hasOption(OUTPUT.getName())) {
+            Path output = new Path(cliParser.getOptionValue(OUTPUT.getName()));
+            aggregator.write(fs, output);
+            System.out.println("Partial results are written to " + output);
+        }
+    }
+
+    /**
+     * Analyzes the splits given on the command line, or the whole input if there are none
+     */
+    private static <A extends AnalysisAggregator<A>> void analyzeSplits(
+            Configuration conf, FileSystem fs, CommandLine cliParser, AnalyzerWorker worker, A aggregator)
+            throws IOException, InterruptedException {
+        List<FileSplit> splits = new ArrayList<>();
+        if (cliParser.hasOption(SPLIT.getName())) {
+            for (String split : cliParser.getOptionValues(SPLIT.getName())) {
+                splits.add(FileSplit.decode(split));
+            }
+        } else {
+            Path input = fs.makeQualified(new Path(cliParser.getOptionValue(INPUT.getName(), INPUT.getDefault())));
+            splits.addAll(InputSplitter.split(conf, InputSplitter.listFiles(fs, input), 1));
+        }
+        for (FileSplit split : splits) {
+            worker.analyze(split, aggregator, null);
+        }
+    }
+
+    /**
+     * Analyzes the splits of the queue one by one until all of them are committed.
+     * Every split gets its own partial results, written to the file of the task.
+     * The committed results of the tasks which run the query of the aggregator are merged into it,
+     * the queries a session sends instead are run by an aggregator of their own.
+     *
+     * @param query query of the aggregator, null if it counts the bookings of couples per hotel
+     */
+    private static <A extends AnalysisAggregator<A>> void processQueue(
+            FileSystem fs, String queueUrl, AnalyzerWorker worker, A aggregator, QuerySpec query)
+            throws IOException, InterruptedException {
+        String containerId = System.getenv(ApplicationConstants.Environment.CONTAINER_ID.name());
+        String host = System.getenv(ApplicationConstants.Environment.NM_HOST.name());
+        SplitQueueClient queue = new SplitQueueClient(queueUrl,
+                containerId != null ? containerId : "local-" + UUID.randomUUID(),
+                host != null ? host : InetAddress.getLocalHost().getHostName());
+
+        // Reports the progress of the running task, aborting it once another attempt is committed
+        AtomicReference<TaskProgress> running = new AtomicReference<>();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleWithFixedDelay(() -> reportProgress(queue, running.get()),
+                PROGRESS_INTERVAL_MS, PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        // Cleared for every task, so the capacity of its map is allocated once
+        A taskAggregator = aggregator.newAggregator();
+        // Aggregator of the last other query of the session, kept while the tasks run the same query
+        QueryAggregator otherAggregator = null;
+        try {
+            SplitTask task;
+            while ((task = queue.next()) != null) {
+                QuerySpec taskQuery = task.getQuery();
+                if (Objects.equals(taskQuery, query)) {
+                    if (processTask(fs, queue, worker, task, taskAggregator, running)) {
+                        aggregator.merge(taskAggregator);
+                    }
+                } else if (taskQuery != null) {
+                    if (otherAggregator == null || !otherAggregator.getQuery().equals(taskQuery)) {
+                        otherAggregator = new QueryAggregator(taskQuery);
                     }
+                    processTask(fs, queue, worker, task, otherAggregator, running);
+                } else {
+                    queue.fail(task);
+                    throw new IllegalStateException("Task " + task.getId()
+                            + " counts the bookings of couples per hotel, the container runs query " + query);
                 }
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
 
-                // srchAdutlsCnt must equal 2 because we are searching for booking records of couples
-                if (hotelContinent == -1 || hotelCountry == -1 || hotelMarket == -1 || srchAdutlsCnt != 2 || !isBooking)
-                    continue;
-
-                Triple<Integer, Integer, Integer> hotelId = Triple.of(hotelContinent, hotelCountry, hotelMarket);
-                Long count = hotelId2count.getOrDefault(hotelId, 0L);
-                hotelId2count.put(hotelId, ++count);
+    /**
+     * Analyzes the split of the task into the cleared aggregator, writes the partial results and commits them
+     *
+     * @return true if the attempt is committed, false if it is discarded, aborted or its commit failed
+     */
+    private static <A extends AnalysisAggregator<A>> boolean processTask(FileSystem fs, SplitQueueClient queue,
+            AnalyzerWorker worker, SplitTask task, A taskAggregator, AtomicReference<TaskProgress> running)
+            throws IOException, InterruptedException {
+        TaskProgress progress = new TaskProgress(task);
+        running.set(progress);
+        taskAggregator.clear();
+        try {
+            worker.analyze(task.getSplit(), taskAggregator, progress);
+            taskAggregator.write(fs, task.getOutput());
+        } catch (IOException | RuntimeException e) {
+            if (progress.isAborted()) {
+                System.out.println("Task " + task.getId() + " attempt " + task.getAttempt() + " is aborted");
+                return false;
+            }
+            queue.fail(task);
+            throw e;
+        } finally {
+            running.set(null);
+        }
+        boolean committed;
+        try {
+            committed = queue.commit(task, progress.getBytes());
+        } catch (IOException e) {
+            // Discarded like a lost commit: the attempt is given back to the queue, which ignores it if the
+            // commit went through, and the container goes on with the next task
+            LOG.warn("Failed to commit task " + task.getId() + " attempt " + task.getAttempt(), e);
+            committed = false;
+            try {
+                queue.fail(task);
+            } catch (IOException failure) {
+                LOG.warn("Failed to give back task " + task.getId() + " attempt " + task.getAttempt(), failure);
             }
+        }
+        System.out.println("Task " + task.getId() + " attempt " + task.getAttempt()
+                + (committed ? " is committed" : " is discarded"));
+        return committed;
+    }
 
-            hotelId2count.entrySet().stream()
-                    .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                    .limit(3)
-                    .forEach(System.out::println);
-            System.out.println("Amount of bad records: " + badRecordsNumber);
+    private static void reportProgress(SplitQueueClient queue, TaskProgress progress) {
+        if (progress == null) {
+            return;
+        }
+        try {
+            if (!queue.progress(progress.getTask(), progress.getBytes())) {
+                progress.abort();
+            }
+        } catch (IOException e) {
+            // The task goes on, the next report may get through
+            LOG.warn("Failed to report progress of task " + progress.getTask().getId(), e);
         }
     }
 }
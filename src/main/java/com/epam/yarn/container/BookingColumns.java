@@ -0,0 +1,48 @@
+package com.epam.yarn.container;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Names of the columns of the booking data set header, see {@link BookingModel}
+ */
+public final class BookingColumns {
+
+    public static final String DATE_TIME = "date_time";
+    public static final String SITE_NAME = "site_name";
+    public static final String POSA_CONTINENT = "posa_continent";
+    public static final String USER_LOCATION_COUNTRY = "user_location_country";
+    public static final String USER_LOCATION_REGION = "user_location_region";
+    public static final String USER_LOCATION_CITY = "user_location_city";
+    public static final String ORIG_DESTINATION_DISTANCE = "orig_destination_distance";
+    public static final String USER_ID = "user_id";
+    public static final String IS_MOBILE = "is_mobile";
+    public static final String IS_PACKAGE = "is_package";
+    public static final String CHANNEL = "channel";
+    public static final String SRCH_CI = "srch_ci";
+    public static final String SRCH_CO = "srch_co";
+    public static final String SRCH_ADULTS_CNT = "srch_adults_cnt";
+    public static final String SRCH_CHILDREN_CNT = "srch_children_cnt";
+    public static final String SRCH_RM_CNT = "srch_rm_cnt";
+    public static final String SRCH_DESTINATION_ID = "srch_destination_id";
+    public static final String SRCH_DESTINATION_TYPE_ID = "srch_destination_type_id";
+    public static final String IS_BOOKING = "is_booking";
+    public static final String CNT = "cnt";
+    public static final String HOTEL_CONTINENT = "hotel_continent";
+    public static final String HOTEL_COUNTRY = "hotel_country";
+    public static final String HOTEL_MARKET = "hotel_market";
+    public static final String HOTEL_CLUSTER = "hotel_cluster";
+
+    /**
+     * Columns holding integers, the flags are 0 or 1. The others hold dates and distances.
+     */
+    public static final Set<String> INT_COLUMNS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            SITE_NAME, POSA_CONTINENT, USER_LOCATION_COUNTRY, USER_LOCATION_REGION, USER_LOCATION_CITY, USER_ID,
+            IS_MOBILE, IS_PACKAGE, CHANNEL, SRCH_ADULTS_CNT, SRCH_CHILDREN_CNT, SRCH_RM_CNT, SRCH_DESTINATION_ID,
+            SRCH_DESTINATION_TYPE_ID, IS_BOOKING, CNT, HOTEL_CONTINENT, HOTEL_COUNTRY, HOTEL_MARKET, HOTEL_CLUSTER)));
+
+    private BookingColumns() {
+    }
+}
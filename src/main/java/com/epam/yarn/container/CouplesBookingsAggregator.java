@@ -0,0 +1,138 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.aggregate.HotelCounts;
+import com.epam.yarn.aggregate.HotelKey;
+import com.epam.yarn.container.csv.Row;
+import com.epam.yarn.container.filter.ColumnStats;
+import com.epam.yarn.container.filter.IntEquals;
+import com.epam.yarn.container.filter.RowPredicate;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.epam.yarn.container.BookingColumns.*;
+import static com.epam.yarn.container.csv.AsciiInts.EMPTY;
+
+/**
+ * Counts bookings of couples per hotel, the analysis run unless a query is given
+ */
+public class CouplesBookingsAggregator implements AnalysisAggregator<CouplesBookingsAggregator> {
+
+    /**
+     * Columns the aggregator reads, rows must be projected to them in this order
+     */
+    public static final List<String> COLUMNS = Collections.unmodifiableList(
+            Arrays.asList(IS_BOOKING, SRCH_ADULTS_CNT, HOTEL_CONTINENT, HOTEL_COUNTRY, HOTEL_MARKET));
+
+    // Positions of the analyzed columns in the projection
+    private static final int IS_BOOKING_COLUMN = 0;
+    private static final int SRCH_ADULTS_CNT_COLUMN = 1;
+    private static final int HOTEL_CONTINENT_COLUMN = 2;
+    private static final int HOTEL_COUNTRY_COLUMN = 3;
+    private static final int HOTEL_MARKET_COLUMN = 4;
+
+    // Booking records of couples. Most of the records are clicks, so is_booking is checked first
+    private static final RowPredicate COUPLES_BOOKINGS =
+            new IntEquals(IS_BOOKING_COLUMN, 1).and(new IntEquals(SRCH_ADULTS_CNT_COLUMN, 2));
+
+    private final int sketchCapacity;
+    private final HotelCounts hotelCounts;
+    private long badRecordsNumber;
+
+    public CouplesBookingsAggregator() {
+        this(0);
+    }
+
+    /**
+     * @param sketchCapacity number of the hotels counted approximately, 0 to count all of them exactly,
+     *                       see {@link HotelCounts#HotelCounts(int)}
+     */
+    public CouplesBookingsAggregator(int sketchCapacity) {
+        this.sketchCapacity = sketchCapacity;
+        this.hotelCounts = new HotelCounts(sketchCapacity);
+    }
+
+    @Override
+    public CouplesBookingsAggregator newAggregator() {
+        return new CouplesBookingsAggregator(sketchCapacity);
+    }
+
+    @Override
+    public void accept(Row row) {
+        if (!COUPLES_BOOKINGS.test(row)) {
+            if (row.hasMalformed()) {
+                badRecordsNumber++;
+            }
+            return;
+        }
+
+        long hotelContinent = row.getInt(HOTEL_CONTINENT_COLUMN);
+        long hotelCountry = row.getInt(HOTEL_COUNTRY_COLUMN);
+        long hotelMarket = row.getInt(HOTEL_MARKET_COLUMN);
+
+        if (row.hasMalformed()) {
+            badRecordsNumber++;
+            return;
+        }
+        if (hotelContinent == EMPTY || hotelCountry == EMPTY || hotelMarket == EMPTY)
+            return;
+
+        if (!HotelKey.isValid((int) hotelContinent, (int) hotelCountry, (int) hotelMarket)) {
+            badRecordsNumber++;
+            return;
+        }
+        hotelCounts.increment((int) hotelContinent, (int) hotelCountry, (int) hotelMarket);
+    }
+
+    @Override
+    public boolean mayMatch(ColumnStats stats) {
+        return COUPLES_BOOKINGS.mayMatch(stats);
+    }
+
+    @Override
+    public void merge(CouplesBookingsAggregator other) {
+        hotelCounts.merge(other.hotelCounts);
+        badRecordsNumber += other.badRecordsNumber;
+    }
+
+    @Override
+    public String[] getColumns() {
+        return COLUMNS.toArray(new String[0]);
+    }
+
+    @Override
+    public void clear() {
+        hotelCounts.clear();
+        badRecordsNumber = 0;
+    }
+
+    @Override
+    public void write(FileSystem fs, Path path) throws IOException {
+        hotelCounts.write(fs, path);
+    }
+
+    /**
+     * @return k most booked hotels followed by the accuracy of the counts if they are approximate
+     */
+    @Override
+    public List<String> report(int k) {
+        List<String> report = hotelCounts.top(k);
+        if (hotelCounts.isApproximate()) {
+            report.add(hotelCounts.describeAccuracy());
+        }
+        return report;
+    }
+
+    public HotelCounts getHotelCounts() {
+        return hotelCounts;
+    }
+
+    @Override
+    public long getBadRecordsNumber() {
+        return badRecordsNumber;
+    }
+}
@@ -0,0 +1,179 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.container.csv.Row;
+import com.epam.yarn.container.filter.ColumnStats;
+import com.epam.yarn.container.filter.IntEquals;
+import com.epam.yarn.container.filter.IntNotEquals;
+import com.epam.yarn.container.filter.IntRange;
+import com.epam.yarn.container.filter.RowPredicate;
+import com.epam.yarn.query.GroupedAggregates;
+import com.epam.yarn.query.QuerySpec;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.epam.yarn.container.csv.AsciiInts.EMPTY;
+
+/**
+ * Evaluates a {@link QuerySpec} over the rows.
+ * <p>
+ * The query is compiled once into the positions of its columns in the projection and a chain of
+ * {@link RowPredicate}s, so evaluating a row reads only the cells it needs and allocates nothing
+ * unless the row starts a new group. The grouped values are packed into a group key of
+ * {@link QuerySpec#getGroupKeyBits()} bits per value, a row with a negative or a larger grouped value
+ * is a bad record, like a row with a malformed cell.
+ */
+public class QueryAggregator implements AnalysisAggregator<QueryAggregator> {
+
+    private final QuerySpec query;
+    private final String[] columns;
+    // Conditions of the query, null if there are none
+    private final RowPredicate where;
+    // Positions of the grouped columns in the projection
+    private final int[] groupColumns;
+    private final int groupKeyBits;
+    private final long maxGroupValue;
+    // Positions of the aggregated columns in the projection, -1 for the count of the rows
+    private final int[] aggregateColumns;
+    // Values of the aggregated columns of the current row
+    private final long[] aggregateValues;
+    private final GroupedAggregates aggregates;
+    private long badRecordsNumber;
+
+    public QueryAggregator(QuerySpec query) {
+        this.query = query;
+        this.columns = query.getColumns();
+        List<String> projection = Arrays.asList(columns);
+
+        RowPredicate predicate = null;
+        for (QuerySpec.Condition condition : query.getWhere()) {
+            RowPredicate next = compile(condition, projection.indexOf(condition.getColumn()));
+            predicate = predicate == null ? next : predicate.and(next);
+        }
+        where = predicate;
+
+        groupColumns = query.getGroupBy().stream().mapToInt(projection::indexOf).toArray();
+        groupKeyBits = query.getGroupKeyBits();
+        maxGroupValue = (1L << groupKeyBits) - 1;
+        aggregateColumns = query.getAggregates().stream()
+                .mapToInt(aggregate -> aggregate.getColumn() != null ? projection.indexOf(aggregate.getColumn()) : -1)
+                .toArray();
+        aggregateValues = new long[aggregateColumns.length];
+        aggregates = new GroupedAggregates(query);
+    }
+
+    private static RowPredicate compile(QuerySpec.Condition condition, int column) {
+        long value = condition.getValue();
+        switch (condition.getOperator()) {
+            case EQ:
+                return new IntEquals(column, condition.getValue());
+            case NE:
+                return new IntNotEquals(column, condition.getValue());
+            case LT:
+                return new IntRange(column, Integer.MIN_VALUE, value - 1);
+            case LE:
+                return new IntRange(column, Integer.MIN_VALUE, value);
+            case GT:
+                return new IntRange(column, value + 1, Integer.MAX_VALUE);
+            case GE:
+                return new IntRange(column, value, Integer.MAX_VALUE);
+            default:
+                throw new IllegalArgumentException("Unknown operator " + condition.getOperator());
+        }
+    }
+
+    @Override
+    public void accept(Row row) {
+        if (where != null && !where.test(row)) {
+            if (row.hasMalformed()) {
+                badRecordsNumber++;
+            }
+            return;
+        }
+
+        long key = 0;
+        boolean empty = false;
+        boolean outOfRange = false;
+        for (int column : groupColumns) {
+            long value = row.getInt(column);
+            empty |= value == EMPTY;
+            outOfRange |= value < 0 || value > maxGroupValue;
+            key = key << groupKeyBits | (value & maxGroupValue);
+        }
+        for (int aggregate = 0; aggregate < aggregateColumns.length; aggregate++) {
+            long value = aggregateColumns[aggregate] >= 0 ? row.getInt(aggregateColumns[aggregate]) : 1;
+            empty |= value == EMPTY;
+            aggregateValues[aggregate] = value;
+        }
+
+        if (row.hasMalformed()) {
+            badRecordsNumber++;
+            return;
+        }
+        if (empty) {
+            return;
+        }
+        if (outOfRange) {
+            badRecordsNumber++;
+            return;
+        }
+
+        int group = aggregates.group(key);
+        for (int aggregate = 0; aggregate < aggregateValues.length; aggregate++) {
+            aggregates.add(aggregate, group, aggregateValues[aggregate]);
+        }
+    }
+
+    @Override
+    public boolean mayMatch(ColumnStats stats) {
+        return where == null || where.mayMatch(stats);
+    }
+
+    @Override
+    public void merge(QueryAggregator other) {
+        aggregates.merge(other.aggregates);
+        badRecordsNumber += other.badRecordsNumber;
+    }
+
+    @Override
+    public String[] getColumns() {
+        return columns;
+    }
+
+    @Override
+    public QueryAggregator newAggregator() {
+        return new QueryAggregator(query);
+    }
+
+    @Override
+    public void clear() {
+        aggregates.clear();
+        badRecordsNumber = 0;
+    }
+
+    @Override
+    public void write(FileSystem fs, Path path) throws IOException {
+        aggregates.write(fs, path);
+    }
+
+    @Override
+    public List<String> report(int k) {
+        return aggregates.top(k);
+    }
+
+    public QuerySpec getQuery() {
+        return query;
+    }
+
+    public GroupedAggregates getAggregates() {
+        return aggregates;
+    }
+
+    @Override
+    public long getBadRecordsNumber() {
+        return badRecordsNumber;
+    }
+}
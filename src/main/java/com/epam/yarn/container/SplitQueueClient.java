@@ -0,0 +1,102 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.split.SplitTask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static com.epam.yarn.split.SplitQueueProtocol.*;
+
+/**
+ * Pulls tasks from the split queue of the application master, see {@link com.epam.yarn.split.SplitQueueProtocol}
+ */
+class SplitQueueClient {
+
+    private static final int WAIT_MS = 1000;
+
+    private final String queueUrl;
+    private final String containerId;
+    private final String host;
+
+    SplitQueueClient(String queueUrl, String containerId, String host) {
+        this.queueUrl = queueUrl;
+        this.containerId = containerId;
+        this.host = host;
+    }
+
+    /**
+     * Blocks while the queue asks to wait for the running attempts
+     *
+     * @return the next task, {@code null} if all the tasks are committed
+     */
+    SplitTask next() throws IOException, InterruptedException {
+        while (true) {
+            String response = call("GET", NEXT_PATH + "?" + CONTAINER_PARAM + "=" + encode(containerId)
+                    + "&" + HOST_PARAM + "=" + encode(host));
+            if (response.startsWith(TASK_RESPONSE + ' ')) {
+                return SplitTask.decode(response.substring(TASK_RESPONSE.length() + 1));
+            }
+            if (DONE_RESPONSE.equals(response)) {
+                return null;
+            }
+            if (!WAIT_RESPONSE.equals(response)) {
+                throw new IOException("Unexpected response of the split queue: " + response);
+            }
+            Thread.sleep(WAIT_MS);
+        }
+    }
+
+    /**
+     * @param bytes bytes of the split processed so far
+     * @return whether the attempt should go on, otherwise another attempt of the task won
+     */
+    boolean progress(SplitTask task, long bytes) throws IOException {
+        return !ABORT_RESPONSE.equals(call("POST", PROGRESS_PATH + attemptParams(task) + "&" + BYTES_PARAM + "=" + bytes));
+    }
+
+    /**
+     * @param bytes bytes of the split processed
+     * @return whether the attempt won, otherwise its partial counts are discarded
+     */
+    boolean commit(SplitTask task, long bytes) throws IOException {
+        return COMMITTED_RESPONSE.equals(call("POST", COMMIT_PATH + attemptParams(task) + "&" + BYTES_PARAM + "=" + bytes));
+    }
+
+    void fail(SplitTask task) throws IOException {
+        call("POST", FAIL_PATH + attemptParams(task));
+    }
+
+    private static String attemptParams(SplitTask task) {
+        return "?" + TASK_PARAM + "=" + task.getId() + "&" + ATTEMPT_PARAM + "=" + task.getAttempt();
+    }
+
+    private String call(String method, String pathAndQuery) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(queueUrl + pathAndQuery).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        // Reading the whole body lets the connection be reused
+        try (InputStream in = status == HttpURLConnection.HTTP_OK
+                ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while (in != null && (n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+            String response = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Split queue answered " + status + " to " + pathAndQuery + ": " + response);
+            }
+            return response;
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+}
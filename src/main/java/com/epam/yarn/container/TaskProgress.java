@@ -0,0 +1,103 @@
+package com.epam.yarn.container;
+
+import com.epam.yarn.split.SplitTask;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes of the split processed by the running attempt of a task, reported to the split queue.
+ * The queue may abort the attempt, then reading the split fails with {@link AbortedException},
+ * possibly wrapped by the CSV reader.
+ */
+class TaskProgress {
+
+    private final SplitTask task;
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean aborted;
+
+    TaskProgress(SplitTask task) {
+        this.task = task;
+    }
+
+    SplitTask getTask() {
+        return task;
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Sets the bytes processed, for readers which do not go through {@link #track(InputStream)}
+     */
+    void setBytes(long processed) throws AbortedException {
+        checkAborted();
+        bytes.lazySet(processed);
+    }
+
+    void abort() {
+        aborted = true;
+    }
+
+    boolean isAborted() {
+        return aborted;
+    }
+
+    private void checkAborted() throws AbortedException {
+        if (aborted) {
+            throw new AbortedException(task);
+        }
+    }
+
+    /**
+     * @return stream counting the bytes read from the input
+     */
+    InputStream track(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public int read() throws IOException {
+                checkAborted();
+                int b = super.read();
+                if (b != -1) {
+                    bytes.lazySet(bytes.get() + 1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkAborted();
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytes.lazySet(bytes.get() + n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                checkAborted();
+                long skipped = super.skip(n);
+                bytes.lazySet(bytes.get() + skipped);
+                return skipped;
+            }
+        };
+    }
+
+
+    /**
+     * Thrown once another attempt of the task is committed
+     */
+    static class AbortedException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        AbortedException(SplitTask task) {
+            super("Task " + task.getId() + " attempt " + task.getAttempt() + " is aborted");
+        }
+    }
+}
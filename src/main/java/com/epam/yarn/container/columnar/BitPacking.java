@@ -0,0 +1,35 @@
+package com.epam.yarn.container.columnar;
+
+/**
+ * Fixed width codes packed into an array of longs, lowest bits first
+ */
+final class BitPacking {
+
+    private BitPacking() {
+    }
+
+    static void set(long[] words, long bit, int width, long code) {
+        if (width == 0) {
+            return;
+        }
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        words[word] |= code << shift;
+        if (shift + width > 64) {
+            words[word + 1] |= code >>> (64 - shift);
+        }
+    }
+
+    static long get(long[] words, long bit, int width) {
+        if (width == 0) {
+            return 0;
+        }
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long code = words[word] >>> shift;
+        if (shift + width > 64) {
+            code |= words[word + 1] << (64 - shift);
+        }
+        return code & (-1L >>> (64 - width));
+    }
+}
@@ -0,0 +1,85 @@
+package com.epam.yarn.container.columnar;
+
+import com.epam.yarn.container.CouplesBookingsAggregator;
+import com.epam.yarn.container.csv.ByteCsvReader;
+import com.epam.yarn.split.InputFiles;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+
+import static com.epam.yarn.Constants.BOOKING_SOURCE;
+
+/**
+ * Builds and finds the columnar caches of CSV files.
+ * <p>
+ * The cache of a CSV file is written next to it as a hidden file, see {@link ColumnarFormat#cachePath(Path)},
+ * and is used only while it is newer than the CSV file. Compressed CSV files are not cached,
+ * since the blocks of the cache are assigned to splits by their offsets in the CSV file. Run it as
+ * {@code hadoop jar <jar> com.epam.yarn.container.columnar.ColumnarCache [csv file]}
+ * to convert the booking source once.
+ */
+public final class ColumnarCache {
+
+    private static final Log LOG = LogFactory.getLog(ColumnarCache.class);
+
+    private ColumnarCache() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        FileSystem fs = FileSystem.get(new Configuration());
+        Path source = fs.makeQualified(new Path(args.length > 0 ? args[0] : BOOKING_SOURCE));
+        Path cache = build(fs, source, CouplesBookingsAggregator.COLUMNS.toArray(new String[0]));
+        LOG.info("Columnar cache of " + source + " is written to " + cache);
+    }
+
+    /**
+     * @return cache of the source file, {@code null} if there is no cache or it is older than the source
+     */
+    public static Path find(FileSystem fs, Path source) throws IOException {
+        if (InputFiles.getCodec(fs.getConf(), source) != null) {
+            return null;
+        }
+        Path cache = ColumnarFormat.cachePath(source);
+        if (!fs.exists(cache)) {
+            return null;
+        }
+        FileStatus cacheStatus = fs.getFileStatus(cache);
+        if (cacheStatus.getModificationTime() < fs.getFileStatus(source).getModificationTime()) {
+            LOG.info("Ignoring columnar cache " + cache + " older than " + source);
+            return null;
+        }
+        return cache;
+    }
+
+    /**
+     * Converts the given columns of the source file. The cache is written to a temporary file first,
+     * so readers never see a partially written cache.
+     *
+     * @return the cache file
+     * @throws IllegalArgumentException if the source file is compressed
+     */
+    public static Path build(FileSystem fs, Path source, String... columns) throws IOException {
+        if (InputFiles.getCodec(fs.getConf(), source) != null) {
+            throw new IllegalArgumentException("Compressed file " + source + " can not be cached");
+        }
+        Path cache = ColumnarFormat.cachePath(source);
+        Path tmp = cache.suffix(".tmp");
+        try (ByteCsvReader reader = new ByteCsvReader(fs.open(source), columns);
+             ColumnarWriter writer = new ColumnarWriter(fs.create(tmp, true), columns)) {
+            while (reader.next()) {
+                writer.write(reader, reader.recordOffset());
+            }
+        }
+
+        fs.delete(cache, false);
+        if (!fs.rename(tmp, cache)) {
+            throw new IOException("Could not rename " + tmp + " to " + cache);
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,62 @@
+package com.epam.yarn.container.columnar;
+
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Layout of a columnar cache file holding integer columns of a CSV file.
+ * <pre>
+ * file   := MAGIC VERSION block* footer footerOffset:long
+ * block  := column* (one per cached column, in footer order)
+ * column := width:int words:int packed:long[words]
+ * footer := MAGIC VERSION columns:int name:UTF* blocks:int index*
+ * index  := offset:long sourceOffset:long rows:int (min:int max:int)* (one pair per cached column)
+ * </pre>
+ * Every cell is stored as a {@code width} bits wide code packed into longs: {@link #EMPTY_CODE} and
+ * {@link #MALFORMED_CODE} mark cells which are not integers, other codes are {@code value - min + FIRST_VALUE_CODE}.
+ * {@code min} and {@code max} cover the integer cells of the block only, they are kept in the footer so that
+ * readers can skip whole blocks without reading them. {@code sourceOffset} is the position of the first record
+ * of the block in the CSV file, it is used to assign blocks to the splits of the CSV file.
+ */
+public final class ColumnarFormat {
+
+    public static final String EXTENSION = ".bcol";
+
+    static final int MAGIC = 0x42434f4c;
+    static final int VERSION = 1;
+
+    static final int DEFAULT_BLOCK_ROWS = 1 << 16;
+
+    static final long EMPTY_CODE = 0;
+    static final long MALFORMED_CODE = 1;
+    static final long FIRST_VALUE_CODE = 2;
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * Footer entry of a block
+     */
+    static class BlockIndex {
+
+        final long offset;
+        final long sourceOffset;
+        final int rows;
+        final long[] mins;
+        final long[] maxes;
+
+        BlockIndex(long offset, long sourceOffset, int rows, long[] mins, long[] maxes) {
+            this.offset = offset;
+            this.sourceOffset = sourceOffset;
+            this.rows = rows;
+            this.mins = mins;
+            this.maxes = maxes;
+        }
+    }
+
+    /**
+     * @return location of the cache of the given CSV file, hidden so that directory inputs skip it
+     */
+    public static Path cachePath(Path source) {
+        return new Path(source.getParent(), "." + source.getName() + EXTENSION);
+    }
+}
@@ -0,0 +1,196 @@
+package com.epam.yarn.container.columnar;
+
+import com.epam.yarn.container.csv.AsciiInts;
+import com.epam.yarn.container.csv.RowReader;
+import com.epam.yarn.container.filter.ColumnStats;
+import com.epam.yarn.split.FileSplit;
+import org.apache.hadoop.fs.FSDataInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static com.epam.yarn.container.columnar.ColumnarFormat.*;
+
+/**
+ * Reads the rows of a columnar cache file, see {@link ColumnarFormat}.
+ * <p>
+ * Only the blocks starting in the given split of the CSV file are read, so adjacent splits
+ * see every row exactly once. Blocks rejected by the {@link #setBlockFilter(Predicate) block filter}
+ * are skipped without being read, so their malformed cells are never seen by {@link #hasMalformed()}.
+ */
+public class ColumnarReader implements RowReader, ColumnStats {
+
+    private final FSDataInputStream in;
+    private final int[] fileColumns;
+    private final List<BlockIndex> blocks = new ArrayList<>();
+    private final List<Long> blockEnds = new ArrayList<>();
+    private Predicate<ColumnStats> blockFilter = stats -> true;
+
+    // Current block, stats and codes of the projected columns
+    private int nextBlock;
+    private BlockIndex block;
+    private byte[] bytes = new byte[0];
+    private final int[] widths;
+    private final long[][] words;
+    private int rows;
+
+    private int row = -1;
+    private boolean malformed;
+
+    /**
+     * @param in         cache file
+     * @param fileLength length of the cache file
+     * @param split      split of the CSV file to read
+     * @param columns    names of the columns to project
+     * @throws IllegalArgumentException if any of the columns is not cached
+     */
+    public ColumnarReader(FSDataInputStream in, long fileLength, FileSplit split, String... columns)
+            throws IOException {
+        this.in = in;
+
+        in.seek(fileLength - Long.BYTES);
+        long footerOffset = in.readLong();
+        in.seek(footerOffset);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a columnar cache of version " + VERSION);
+        }
+
+        int fileColumnCount = in.readInt();
+        List<String> cached = new ArrayList<>();
+        for (int i = 0; i < fileColumnCount; i++) {
+            cached.add(in.readUTF());
+        }
+        fileColumns = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            fileColumns[i] = cached.indexOf(columns[i]);
+            if (fileColumns[i] < 0) {
+                throw new IllegalArgumentException("Column " + columns[i] + " is not cached, cached columns " + cached);
+            }
+        }
+
+        int blockCount = in.readInt();
+        List<BlockIndex> index = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            long offset = in.readLong();
+            long sourceOffset = in.readLong();
+            int blockRows = in.readInt();
+            long[] blockMins = new long[columns.length];
+            long[] blockMaxes = new long[columns.length];
+            for (int fileColumn = 0; fileColumn < fileColumnCount; fileColumn++) {
+                int min = in.readInt();
+                int max = in.readInt();
+                for (int column = 0; column < columns.length; column++) {
+                    if (fileColumns[column] == fileColumn) {
+                        blockMins[column] = min;
+                        blockMaxes[column] = max;
+                    }
+                }
+            }
+            index.add(new BlockIndex(offset, sourceOffset, blockRows, blockMins, blockMaxes));
+        }
+
+        for (int i = 0; i < blockCount; i++) {
+            // A row belongs to the split it starts in, see SplitLineInputStream
+            long sourceOffset = index.get(i).sourceOffset;
+            boolean owned = (split.getStart() == 0 ? sourceOffset >= 0 : sourceOffset > split.getStart())
+                    && sourceOffset <= split.getEnd();
+            if (owned) {
+                blocks.add(index.get(i));
+                blockEnds.add(i + 1 < blockCount ? index.get(i + 1).offset : footerOffset);
+            }
+        }
+
+        widths = new int[columns.length];
+        words = new long[columns.length][];
+    }
+
+    /**
+     * @param blockFilter rejects blocks which need not be read
+     */
+    public void setBlockFilter(Predicate<ColumnStats> blockFilter) {
+        this.blockFilter = blockFilter;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        malformed = false;
+        while (++row >= rows) {
+            if (nextBlock == blocks.size()) {
+                return false;
+            }
+            block = blocks.get(nextBlock);
+            rows = blockFilter.test(this) ? readBlock(blockEnds.get(nextBlock)) : 0;
+            nextBlock++;
+            row = -1;
+        }
+        return true;
+    }
+
+    /**
+     * @return offset in the CSV source of the first row of the current block
+     */
+    public long getSourceOffset() {
+        return block == null ? 0 : block.sourceOffset;
+    }
+
+    private int readBlock(long blockEnd) throws IOException {
+        int length = (int) (blockEnd - block.offset);
+        if (bytes.length < length) {
+            bytes = new byte[length];
+        }
+        in.readFully(block.offset, bytes, 0, length);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+
+        for (int fileColumn = 0; buffer.hasRemaining(); fileColumn++) {
+            int width = buffer.getInt();
+            int count = buffer.getInt();
+            for (int column = 0; column < fileColumns.length; column++) {
+                if (fileColumns[column] == fileColumn) {
+                    if (words[column] == null || words[column].length < count) {
+                        words[column] = new long[count];
+                    }
+                    widths[column] = width;
+                    buffer.asLongBuffer().get(words[column], 0, count);
+                }
+            }
+            buffer.position(buffer.position() + count * Long.BYTES);
+        }
+        return block.rows;
+    }
+
+    @Override
+    public long getInt(int column) {
+        long code = BitPacking.get(words[column], (long) row * widths[column], widths[column]);
+        if (code == EMPTY_CODE) {
+            return AsciiInts.EMPTY;
+        }
+        if (code == MALFORMED_CODE) {
+            malformed = true;
+            return AsciiInts.MALFORMED;
+        }
+        return block.mins[column] + code - FIRST_VALUE_CODE;
+    }
+
+    @Override
+    public boolean hasMalformed() {
+        return malformed;
+    }
+
+    @Override
+    public long min(int column) {
+        return block.mins[column];
+    }
+
+    @Override
+    public long max(int column) {
+        return block.maxes[column];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,130 @@
+package com.epam.yarn.container.columnar;
+
+import com.epam.yarn.container.csv.AsciiInts;
+import com.epam.yarn.container.csv.Row;
+import org.apache.hadoop.fs.FSDataOutputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.epam.yarn.container.columnar.ColumnarFormat.*;
+
+/**
+ * Writes rows into a columnar cache file, see {@link ColumnarFormat}
+ */
+public class ColumnarWriter implements Closeable {
+
+    private final FSDataOutputStream out;
+    private final String[] columns;
+    private final long[][] values;
+    private final List<BlockIndex> blocks = new ArrayList<>();
+
+    private int rows;
+    private long blockSourceOffset;
+
+    /**
+     * @param columns names of the columns of the rows passed to {@link #write(Row, long)}
+     */
+    public ColumnarWriter(FSDataOutputStream out, String[] columns) throws IOException {
+        this(out, columns, DEFAULT_BLOCK_ROWS);
+    }
+
+    public ColumnarWriter(FSDataOutputStream out, String[] columns, int blockRows) throws IOException {
+        this.out = out;
+        this.columns = columns.clone();
+        this.values = new long[columns.length][blockRows];
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * @param row          row projected to the cached columns
+     * @param sourceOffset position of the row in the CSV file
+     */
+    public void write(Row row, long sourceOffset) throws IOException {
+        if (rows == 0) {
+            blockSourceOffset = sourceOffset;
+        }
+        for (int column = 0; column < columns.length; column++) {
+            values[column][rows] = row.getInt(column);
+        }
+        if (++rows == values[0].length) {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        BlockIndex block = new BlockIndex(out.getPos(), blockSourceOffset, rows,
+                new long[columns.length], new long[columns.length]);
+        for (int column = 0; column < columns.length; column++) {
+            writeColumn(block, column);
+        }
+        blocks.add(block);
+        rows = 0;
+    }
+
+    private void writeColumn(BlockIndex block, int index) throws IOException {
+        long[] column = values[index];
+        long min = Integer.MAX_VALUE;
+        long max = Integer.MIN_VALUE;
+        boolean malformed = false;
+        for (int row = 0; row < rows; row++) {
+            if (AsciiInts.isInt(column[row])) {
+                min = Math.min(min, column[row]);
+                max = Math.max(max, column[row]);
+            } else if (column[row] == AsciiInts.MALFORMED) {
+                malformed = true;
+            }
+        }
+
+        long maxCode = min <= max ? max - min + FIRST_VALUE_CODE : malformed ? MALFORMED_CODE : EMPTY_CODE;
+        int width = 64 - Long.numberOfLeadingZeros(maxCode);
+        long[] words = new long[(int) (((long) rows * width + 63) / 64)];
+        for (int row = 0; row < rows; row++) {
+            long code = column[row] == AsciiInts.EMPTY ? EMPTY_CODE
+                    : column[row] == AsciiInts.MALFORMED ? MALFORMED_CODE
+                    : column[row] - min + FIRST_VALUE_CODE;
+            BitPacking.set(words, (long) row * width, width, code);
+        }
+
+        block.mins[index] = min;
+        block.maxes[index] = max;
+        out.writeInt(width);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+
+            long footerOffset = out.getPos();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(columns.length);
+            for (String column : columns) {
+                out.writeUTF(column);
+            }
+            out.writeInt(blocks.size());
+            for (BlockIndex block : blocks) {
+                out.writeLong(block.offset);
+                out.writeLong(block.sourceOffset);
+                out.writeInt(block.rows);
+                for (int column = 0; column < columns.length; column++) {
+                    out.writeInt((int) block.mins[column]);
+                    out.writeInt((int) block.maxes[column]);
+                }
+            }
+            out.writeLong(footerOffset);
+        } finally {
+            out.close();
+        }
+    }
+}
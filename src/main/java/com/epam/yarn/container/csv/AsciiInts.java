@@ -0,0 +1,97 @@
+package com.epam.yarn.container.csv;
+
+/**
+ * Parses decimal integers straight from characters or bytes without creating strings or throwing exceptions.
+ * <p>
+ * Results are returned as {@code long}, so that the {@link #EMPTY} and {@link #MALFORMED} markers
+ * cannot collide with any {@code int} value.
+ */
+public final class AsciiInts {
+
+    /**
+     * Value of a cell without any characters
+     */
+    public static final long EMPTY = Long.MIN_VALUE;
+
+    /**
+     * Value of a cell which is not an {@code int}, the same values are rejected by {@link Integer#parseInt(String)}
+     */
+    public static final long MALFORMED = Long.MIN_VALUE + 1;
+
+    private AsciiInts() {
+    }
+
+    public static boolean isInt(long value) {
+        return value != EMPTY && value != MALFORMED;
+    }
+
+    public static long parse(CharSequence chars) {
+        return parse(chars, 0, chars.length());
+    }
+
+    /**
+     * Parses characters in range [from, to)
+     */
+    public static long parse(CharSequence chars, int from, int to) {
+        if (from == to) {
+            return EMPTY;
+        }
+
+        boolean negative = false;
+        char first = chars.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return MALFORMED;
+            }
+        }
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = chars.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return MALFORMED;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return MALFORMED;
+            }
+        }
+
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? MALFORMED : value;
+    }
+
+    /**
+     * Parses ASCII bytes in range [from, to)
+     */
+    public static long parse(byte[] bytes, int from, int to) {
+        if (from == to) {
+            return EMPTY;
+        }
+
+        boolean negative = false;
+        byte first = bytes[from];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return MALFORMED;
+            }
+        }
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return MALFORMED;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return MALFORMED;
+            }
+        }
+
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? MALFORMED : value;
+    }
+}
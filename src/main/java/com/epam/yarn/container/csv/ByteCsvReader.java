@@ -0,0 +1,271 @@
+package com.epam.yarn.container.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link RowReader} tokenizing RFC 4180 CSV right in a reusable byte buffer.
+ * <p>
+ * Records are never decoded into characters or strings: the reader only finds the record boundaries,
+ * splits the record into cells up to the requested column and parses integers from the bytes of the cell.
+ * Quoted cells, escaped quotes and line breaks inside quotes are supported, but take the slow path
+ * only when a quote is actually met. Cell contents other than the header are never unescaped,
+ * which makes no difference for integer columns.
+ */
+public class ByteCsvReader implements RowReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int limit;
+    private boolean eof;
+
+    // Position in the stream of the first byte of the buffer
+    private long bufferOffset;
+
+    // Current record is [recordStart, recordEnd) of the buffer excluding the line break
+    private int recordStart;
+    private int recordEnd;
+    private int nextRecordStart;
+
+    // Indexes of the projected columns and cells tokenized so far
+    private int[] indexes;
+    private int[] cellStarts;
+    private int[] cellEnds;
+    private int tokenized;
+    private int tokenizePos;
+    private boolean malformed;
+
+    /**
+     * @param in      CSV file starting with the header
+     * @param columns names of the columns to project
+     */
+    public ByteCsvReader(InputStream in, String... columns) throws IOException {
+        this(in, DEFAULT_BUFFER_SIZE, columns);
+    }
+
+    public ByteCsvReader(InputStream in, int bufferSize, String... columns) throws IOException {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+        project(readHeader(), columns);
+    }
+
+    /**
+     * Reads records from {@code bytes[from, to)} passed to {@link #reset(byte[], int, int)} instead of a stream.
+     * One reader is reused for many chunks of the same file, none of them may contain the header.
+     */
+    ByteCsvReader(ColumnProjection projection) {
+        this.in = null;
+        this.eof = true;
+        project(projection);
+    }
+
+    /**
+     * Switches a reader created with {@link #ByteCsvReader(ColumnProjection)} to the next chunk of records
+     */
+    void reset(byte[] bytes, int from, int to) {
+        this.buffer = bytes;
+        this.nextRecordStart = from;
+        this.limit = to;
+    }
+
+    private Map<String, Integer> readHeader() throws IOException {
+        return findRecord() ? parseHeader(buffer, recordStart, recordEnd) : new HashMap<>();
+    }
+
+    /**
+     * @param bytes header record in range [from, to) excluding the line break
+     * @return column name to column index mapping
+     */
+    static Map<String, Integer> parseHeader(byte[] bytes, int from, int to) {
+        Map<String, Integer> header = new HashMap<>();
+        int pos = from;
+        while (pos <= to) {
+            boolean quoted = pos < to && bytes[pos] == '"';
+            int start = quoted ? pos + 1 : pos;
+            int end = quoted ? closingQuote(bytes, start, to) : nextDelimiter(bytes, pos, to);
+            String cell = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            header.put(quoted ? cell.replace("\"\"", "\"") : cell, header.size());
+            pos = nextDelimiter(bytes, end, to) + 1;
+        }
+        return header;
+    }
+
+    private void project(Map<String, Integer> header, String[] columns) {
+        project(ColumnProjection.of(header, columns));
+    }
+
+    private void project(ColumnProjection projection) {
+        indexes = new int[projection.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = projection.index(i);
+        }
+        cellStarts = new int[projection.maxIndex() + 1];
+        cellEnds = new int[projection.maxIndex() + 1];
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!findRecord()) {
+            return false;
+        }
+        tokenized = 0;
+        tokenizePos = recordStart;
+        malformed = false;
+        return true;
+    }
+
+    @Override
+    public long getInt(int column) {
+        int index = indexes[column];
+        // Cells missing in a short record are treated as empty ones
+        if (!tokenize(index)) {
+            return AsciiInts.EMPTY;
+        }
+
+        long value = AsciiInts.parse(buffer, cellStarts[index], cellEnds[index]);
+        if (value == AsciiInts.MALFORMED) {
+            malformed = true;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean hasMalformed() {
+        return malformed;
+    }
+
+    /**
+     * @return position of the current record in the stream, including the header
+     */
+    public long recordOffset() {
+        return bufferOffset + recordStart;
+    }
+
+    /**
+     * Finds the next record starting at {@link #nextRecordStart}, refilling the buffer if needed
+     */
+    private boolean findRecord() throws IOException {
+        int pos = nextRecordStart;
+        boolean quoted = false;
+        while (true) {
+            if (pos == limit) {
+                if (eof) {
+                    if (pos == nextRecordStart) {
+                        return false;
+                    }
+                    // The last record is not terminated with a line break
+                    recordStart = nextRecordStart;
+                    recordEnd = pos;
+                    nextRecordStart = pos;
+                    return true;
+                }
+                pos -= compact();
+                fill();
+                continue;
+            }
+
+            byte b = buffer[pos];
+            if (b == '\n' && !quoted) {
+                recordStart = nextRecordStart;
+                recordEnd = pos > recordStart && buffer[pos - 1] == '\r' ? pos - 1 : pos;
+                nextRecordStart = pos + 1;
+                return true;
+            }
+            if (b == '"') {
+                // An escaped quote toggles the state twice
+                quoted = !quoted;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the beginning of the buffer, grows the buffer if it is full of them
+     *
+     * @return distance the bytes were moved by
+     */
+    private int compact() {
+        int shift = nextRecordStart;
+        int remaining = limit - nextRecordStart;
+        byte[] target = shift == 0 && remaining == buffer.length ? new byte[buffer.length * 2] : buffer;
+        System.arraycopy(buffer, nextRecordStart, target, 0, remaining);
+        buffer = target;
+        bufferOffset += shift;
+        nextRecordStart = 0;
+        limit = remaining;
+        return shift;
+    }
+
+    private void fill() throws IOException {
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n == -1) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    /**
+     * Splits the current record into cells up to the given index
+     *
+     * @return false if the record has fewer cells
+     */
+    private boolean tokenize(int index) {
+        while (tokenized <= index) {
+            if (tokenizePos > recordEnd) {
+                return false;
+            }
+
+            int pos = tokenizePos;
+            if (pos < recordEnd && buffer[pos] == '"') {
+                cellStarts[tokenized] = pos + 1;
+                cellEnds[tokenized] = closingQuote(buffer, pos + 1, recordEnd);
+                pos = nextDelimiter(buffer, cellEnds[tokenized], recordEnd);
+            } else {
+                cellStarts[tokenized] = pos;
+                pos = nextDelimiter(buffer, pos, recordEnd);
+                cellEnds[tokenized] = pos;
+            }
+            tokenized++;
+            tokenizePos = pos + 1;
+        }
+        return true;
+    }
+
+    private static int nextDelimiter(byte[] bytes, int pos, int end) {
+        while (pos < end && bytes[pos] != ',') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param pos position right after the opening quote
+     * @return position of the closing quote or the end if there is none
+     */
+    private static int closingQuote(byte[] bytes, int pos, int end) {
+        while (pos < end) {
+            if (bytes[pos] == '"') {
+                if (pos + 1 < end && bytes[pos + 1] == '"') {
+                    pos += 2;
+                    continue;
+                }
+                return pos;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.epam.yarn.container.csv;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Subset of the columns of a CSV file.
+ * <p>
+ * Column names are resolved against the header once, afterwards the projected columns
+ * are addressed by their position in the projection and read from a record by index.
+ */
+public class ColumnProjection {
+
+    private final String[] names;
+    private final int[] indexes;
+
+    private ColumnProjection(String[] names, int[] indexes) {
+        this.names = names;
+        this.indexes = indexes;
+    }
+
+    /**
+     * @param header  column name to column index mapping
+     * @param columns names of the projected columns
+     * @throws IllegalArgumentException if any of the columns is missing in the header
+     */
+    public static ColumnProjection of(Map<String, Integer> header, String... columns) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = header.get(columns[i]);
+            if (index == null) {
+                throw new IllegalArgumentException("Column " + columns[i] + " is missing in header " + header.keySet());
+            }
+            indexes[i] = index;
+        }
+        return new ColumnProjection(columns.clone(), indexes);
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    /**
+     * @param column position of the column in the projection
+     * @return index of the column in a record
+     */
+    public int index(int column) {
+        return indexes[column];
+    }
+
+    public String name(int column) {
+        return names[column];
+    }
+
+    /**
+     * @return the highest index of the projected columns, records are never read beyond it
+     */
+    public int maxIndex() {
+        return Arrays.stream(indexes).max().orElse(-1);
+    }
+}
@@ -0,0 +1,68 @@
+package com.epam.yarn.container.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * {@link RowReader} backed by Commons CSV parser.
+ * Slower than {@link ByteCsvReader}, but accepts any RFC 4180 input.
+ */
+public class CommonsCsvReader implements RowReader {
+
+    private final CSVParser parser;
+    private final Iterator<CSVRecord> records;
+    private final ColumnProjection projection;
+    private CSVRecord record;
+    private boolean malformed;
+
+    /**
+     * @param in      CSV file starting with the header
+     * @param columns names of the columns to project
+     */
+    public CommonsCsvReader(InputStream in, String... columns) throws IOException {
+        this.parser = CSVParser.parse(in, StandardCharsets.UTF_8, CSVFormat.RFC4180.withHeader());
+        this.projection = ColumnProjection.of(parser.getHeaderMap(), columns);
+        this.records = parser.iterator();
+    }
+
+    @Override
+    public boolean next() {
+        if (!records.hasNext()) {
+            return false;
+        }
+        record = records.next();
+        malformed = false;
+        return true;
+    }
+
+    @Override
+    public long getInt(int column) {
+        int index = projection.index(column);
+        // Cells missing in a short record are treated as empty ones
+        if (index >= record.size()) {
+            return AsciiInts.EMPTY;
+        }
+
+        long value = AsciiInts.parse(record.get(index));
+        if (value == AsciiInts.MALFORMED) {
+            malformed = true;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean hasMalformed() {
+        return malformed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
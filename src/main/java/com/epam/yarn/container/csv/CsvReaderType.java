@@ -0,0 +1,40 @@
+package com.epam.yarn.container.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Available {@link RowReader} implementations
+ */
+public enum CsvReaderType {
+
+    /**
+     * Tokenizes bytes in place, see {@link ByteCsvReader}
+     */
+    BYTES {
+        @Override
+        public RowReader open(InputStream in, String... columns) throws IOException {
+            return new ByteCsvReader(in, columns);
+        }
+    },
+
+    /**
+     * Fallback to Commons CSV, see {@link CommonsCsvReader}
+     */
+    COMMONS {
+        @Override
+        public RowReader open(InputStream in, String... columns) throws IOException {
+            return new CommonsCsvReader(in, columns);
+        }
+    };
+
+    public abstract RowReader open(InputStream in, String... columns) throws IOException;
+
+    /**
+     * @param name case insensitive name of the type
+     */
+    public static CsvReaderType of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,284 @@
+package com.epam.yarn.container.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Scans a CSV file with several threads.
+ * <p>
+ * The calling thread reads the file into chunks cut on line breaks, worker threads tokenize the chunks
+ * with their own {@link ByteCsvReader} and feed the rows to their own {@link RowAggregator}, which are
+ * merged once the file is over. Chunks are recycled through a fixed pool, so the scan holds at most
+ * {@code 2 * threads} chunks in memory and reading blocks while the workers are behind.
+ * <p>
+ * Chunks are cut on every line break, so records must not contain line breaks inside quoted cells.
+ * <p>
+ * The threads and the chunks are kept between the scans, so one scanner serves many files
+ * until it is closed.
+ */
+public class ParallelCsvScanner implements Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final int threads;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    private BlockingQueue<Chunk> free;
+    private BlockingQueue<Chunk> full;
+
+    public ParallelCsvScanner(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelCsvScanner(int threads, int chunkSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "csv-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        resetChunks();
+    }
+
+    private void resetChunks() {
+        free = new ArrayBlockingQueue<>(2 * threads);
+        full = new ArrayBlockingQueue<>(2 * threads + threads);
+        for (int i = 0; i < 2 * threads; i++) {
+            free.add(new Chunk(chunkSize));
+        }
+    }
+
+    /**
+     * @param in         CSV file starting with the header, closed by the method
+     * @param columns    names of the columns to project
+     * @param aggregator creates an aggregator for every thread
+     * @return all the thread aggregators merged
+     */
+    public <A extends RowAggregator<A>> A scan(InputStream in, String[] columns, Supplier<A> aggregator)
+            throws IOException, InterruptedException {
+        BlockingQueue<Chunk> free = this.free;
+        BlockingQueue<Chunk> full = this.full;
+        List<Future<A>> workers = new ArrayList<>();
+        boolean completed = false;
+        try (InputStream input = in) {
+
+            Chunk chunk = take(free, workers);
+            ColumnProjection projection = ColumnProjection.of(readHeader(input, chunk), columns);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> aggregate(projection, aggregator.get(), free, full)));
+            }
+
+            while (true) {
+                boolean eof = fill(input, chunk);
+                if (eof) {
+                    put(full, chunk, workers);
+                    break;
+                }
+
+                int cut = lastLineBreak(chunk);
+                if (cut < 0) {
+                    // A record longer than the chunk
+                    chunk.grow();
+                    continue;
+                }
+
+                Chunk next = take(free, workers);
+                next.carry(chunk, cut + 1);
+                put(full, chunk, workers);
+                chunk = next;
+            }
+            for (int i = 0; i < threads; i++) {
+                put(full, Chunk.END, workers);
+            }
+
+            A result = null;
+            for (Future<A> worker : workers) {
+                A partial = get(worker);
+                if (result == null) {
+                    result = partial;
+                } else {
+                    result.merge(partial);
+                }
+            }
+            // Every chunk is back in the free queue
+            completed = true;
+            return result;
+        } finally {
+            if (!completed) {
+                // Chunks held by the failed scan are abandoned together with its workers
+                workers.forEach(worker -> worker.cancel(true));
+                resetChunks();
+            }
+        }
+    }
+
+    /**
+     * Stops the threads
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static <A extends RowAggregator<A>> A aggregate(ColumnProjection projection, A aggregator,
+                                                            BlockingQueue<Chunk> free,
+                                                            BlockingQueue<Chunk> full)
+            throws IOException, InterruptedException {
+        ByteCsvReader reader = new ByteCsvReader(projection);
+        while (true) {
+            Chunk chunk = full.take();
+            if (chunk == Chunk.END) {
+                return aggregator;
+            }
+
+            reader.reset(chunk.bytes, chunk.from, chunk.to);
+            while (reader.next()) {
+                aggregator.accept(reader);
+            }
+            free.put(chunk);
+        }
+    }
+
+    /**
+     * Reads the header into the chunk and leaves the records after it
+     */
+    private static Map<String, Integer> readHeader(InputStream in, Chunk chunk) throws IOException {
+        while (true) {
+            boolean eof = fill(in, chunk);
+            for (int pos = chunk.from; pos < chunk.to; pos++) {
+                if (chunk.bytes[pos] == '\n') {
+                    int end = pos > chunk.from && chunk.bytes[pos - 1] == '\r' ? pos - 1 : pos;
+                    Map<String, Integer> header = ByteCsvReader.parseHeader(chunk.bytes, chunk.from, end);
+                    chunk.from = pos + 1;
+                    return header;
+                }
+            }
+            if (eof) {
+                Map<String, Integer> header = ByteCsvReader.parseHeader(chunk.bytes, chunk.from, chunk.to);
+                chunk.from = chunk.to;
+                return header;
+            }
+            chunk.grow();
+        }
+    }
+
+    /**
+     * Reads until the chunk is full or the stream is over
+     *
+     * @return whether the stream is over
+     */
+    private static boolean fill(InputStream in, Chunk chunk) throws IOException {
+        while (chunk.to < chunk.bytes.length) {
+            int n = in.read(chunk.bytes, chunk.to, chunk.bytes.length - chunk.to);
+            if (n == -1) {
+                return true;
+            }
+            chunk.to += n;
+        }
+        return false;
+    }
+
+    private static int lastLineBreak(Chunk chunk) {
+        for (int pos = chunk.to - 1; pos >= chunk.from; pos--) {
+            if (chunk.bytes[pos] == '\n') {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Takes a free chunk, giving up if a worker failed and will never return one
+     */
+    private static <A> Chunk take(BlockingQueue<Chunk> free, List<Future<A>> workers)
+            throws IOException, InterruptedException {
+        while (true) {
+            Chunk chunk = free.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            if (chunk != null) {
+                chunk.from = 0;
+                chunk.to = 0;
+                return chunk;
+            }
+            checkWorkers(workers);
+        }
+    }
+
+    private static <A> void put(BlockingQueue<Chunk> full, Chunk chunk, List<Future<A>> workers)
+            throws IOException, InterruptedException {
+        while (!full.offer(chunk, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            checkWorkers(workers);
+        }
+    }
+
+    private static <A> void checkWorkers(List<Future<A>> workers) throws IOException, InterruptedException {
+        for (Future<A> worker : workers) {
+            if (worker.isDone()) {
+                get(worker);
+            }
+        }
+    }
+
+    private static <A> A get(Future<A> worker) throws IOException, InterruptedException {
+        try {
+            return worker.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("CSV worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Records in {@code bytes[from, to)}
+     */
+    private static class Chunk {
+
+        static final Chunk END = new Chunk(0);
+
+        byte[] bytes;
+        int from;
+        int to;
+
+        Chunk(int size) {
+            bytes = new byte[size];
+        }
+
+        void grow() {
+            byte[] grown = new byte[bytes.length * 2];
+            System.arraycopy(bytes, 0, grown, 0, to);
+            bytes = grown;
+        }
+
+        /**
+         * Moves the incomplete last record of the previous chunk to this one
+         */
+        void carry(Chunk previous, int cut) {
+            int length = previous.to - cut;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            System.arraycopy(previous.bytes, cut, bytes, 0, length);
+            to = length;
+            previous.to = cut;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.epam.yarn.container.csv;
+
+/**
+ * Current record of a reader, restricted to the columns of a {@link ColumnProjection}.
+ * <p>
+ * Cells are parsed only when they are requested, so a record rejected by a filter
+ * costs nothing for the columns the filter does not look at.
+ */
+public interface Row {
+
+    /**
+     * @param column position of the column in the projection
+     * @return value of the cell, {@link AsciiInts#EMPTY} or {@link AsciiInts#MALFORMED}
+     */
+    long getInt(int column);
+
+    /**
+     * @return whether any cell requested from the current record was {@link AsciiInts#MALFORMED}
+     */
+    boolean hasMalformed();
+}
@@ -0,0 +1,26 @@
+package com.epam.yarn.container.csv;
+
+import com.epam.yarn.container.filter.ColumnStats;
+
+/**
+ * Accumulates rows of a scan. Parallel scans give every thread its own aggregator
+ * and merge them at the end, so implementations need not be thread safe.
+ *
+ * @param <A> type of the aggregator itself
+ */
+public interface RowAggregator<A extends RowAggregator<A>> {
+
+    void accept(Row row);
+
+    /**
+     * @return false if the aggregator ignores all the rows of a block with the given stats
+     */
+    default boolean mayMatch(ColumnStats stats) {
+        return true;
+    }
+
+    /**
+     * Adds everything accumulated by the other aggregator to this one
+     */
+    void merge(A other);
+}
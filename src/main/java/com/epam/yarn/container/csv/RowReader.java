@@ -0,0 +1,18 @@
+package com.epam.yarn.container.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the records of a CSV file with a header one by one.
+ * The reader itself is the {@link Row} view of the current record.
+ */
+public interface RowReader extends Row, Closeable {
+
+    /**
+     * Moves to the next record
+     *
+     * @return false if there are no more records
+     */
+    boolean next() throws IOException;
+}
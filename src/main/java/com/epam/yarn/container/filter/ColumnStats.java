@@ -0,0 +1,12 @@
+package com.epam.yarn.container.filter;
+
+/**
+ * Range of the integer values of the projected columns in a block of rows.
+ * A column without any integer value in the block has {@code min > max}.
+ */
+public interface ColumnStats {
+
+    long min(int column);
+
+    long max(int column);
+}
@@ -0,0 +1,32 @@
+package com.epam.yarn.container.filter;
+
+import com.epam.yarn.container.csv.Row;
+
+/**
+ * Accepts rows having the given value in an integer column.
+ * Empty and malformed cells never match.
+ */
+public class IntEquals implements RowPredicate {
+
+    private final int column;
+    private final int value;
+
+    /**
+     * @param column position of the column in the projection
+     * @param value  expected value
+     */
+    public IntEquals(int column, int value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    @Override
+    public boolean test(Row row) {
+        return row.getInt(column) == value;
+    }
+
+    @Override
+    public boolean mayMatch(ColumnStats stats) {
+        return stats.min(column) <= value && value <= stats.max(column);
+    }
+}
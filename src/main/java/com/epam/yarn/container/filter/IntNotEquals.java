@@ -0,0 +1,34 @@
+package com.epam.yarn.container.filter;
+
+import com.epam.yarn.container.csv.AsciiInts;
+import com.epam.yarn.container.csv.Row;
+
+/**
+ * Accepts rows having an integer other than the given value in an integer column.
+ * Empty and malformed cells never match.
+ */
+public class IntNotEquals implements RowPredicate {
+
+    private final int column;
+    private final int value;
+
+    /**
+     * @param column position of the column in the projection
+     * @param value  rejected value
+     */
+    public IntNotEquals(int column, int value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    @Override
+    public boolean test(Row row) {
+        long cell = row.getInt(column);
+        return cell != value && AsciiInts.isInt(cell);
+    }
+
+    @Override
+    public boolean mayMatch(ColumnStats stats) {
+        return stats.min(column) <= stats.max(column) && (stats.min(column) != value || stats.max(column) != value);
+    }
+}
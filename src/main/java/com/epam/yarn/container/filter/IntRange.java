@@ -0,0 +1,36 @@
+package com.epam.yarn.container.filter;
+
+import com.epam.yarn.container.csv.Row;
+
+/**
+ * Accepts rows having a value in range [min, max] in an integer column.
+ * Empty and malformed cells never match.
+ */
+public class IntRange implements RowPredicate {
+
+    private final int column;
+    private final long min;
+    private final long max;
+
+    /**
+     * @param column position of the column in the projection
+     * @param min    lowest accepted value, at least {@link Integer#MIN_VALUE}
+     * @param max    highest accepted value
+     */
+    public IntRange(int column, long min, long max) {
+        this.column = column;
+        this.min = Math.max(min, Integer.MIN_VALUE);
+        this.max = max;
+    }
+
+    @Override
+    public boolean test(Row row) {
+        long value = row.getInt(column);
+        return min <= value && value <= max;
+    }
+
+    @Override
+    public boolean mayMatch(ColumnStats stats) {
+        return stats.min(column) <= stats.max(column) && stats.min(column) <= max && min <= stats.max(column);
+    }
+}
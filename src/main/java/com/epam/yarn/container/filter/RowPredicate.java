@@ -0,0 +1,38 @@
+package com.epam.yarn.container.filter;
+
+import com.epam.yarn.container.csv.Row;
+
+/**
+ * Condition on a {@link Row}.
+ * <p>
+ * Predicates are evaluated before the rest of the row is read. Combine them with
+ * {@link #and(RowPredicate)} starting with the cheapest and most selective one,
+ * the rest are evaluated only for the rows which passed it.
+ */
+@FunctionalInterface
+public interface RowPredicate {
+
+    boolean test(Row row);
+
+    /**
+     * @return false if none of the rows of a block with the given stats passes the predicate
+     */
+    default boolean mayMatch(ColumnStats stats) {
+        return true;
+    }
+
+    default RowPredicate and(RowPredicate other) {
+        RowPredicate self = this;
+        return new RowPredicate() {
+            @Override
+            public boolean test(Row row) {
+                return self.test(row) && other.test(row);
+            }
+
+            @Override
+            public boolean mayMatch(ColumnStats stats) {
+                return self.mayMatch(stats) && other.mayMatch(stats);
+            }
+        };
+    }
+}
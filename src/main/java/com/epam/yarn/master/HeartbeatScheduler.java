@@ -0,0 +1,38 @@
+package com.epam.yarn.master;
+
+/**
+ * Chooses the interval between the heartbeats of the application master to the ResourceManager.
+ * <p>
+ * The master polls with the minimal interval while containers are still requested or anything happened
+ * since the previous heartbeat, and doubles the interval on every quiet heartbeat up to the maximal one.
+ */
+class HeartbeatScheduler {
+
+    private final int minIntervalMs;
+    private final int maxIntervalMs;
+    private int intervalMs;
+
+    HeartbeatScheduler(int minIntervalMs, int maxIntervalMs) {
+        if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException(
+                    "Illegal heartbeat intervals, min=" + minIntervalMs + ", max=" + maxIntervalMs);
+        }
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.intervalMs = minIntervalMs;
+    }
+
+    /**
+     * @param busy whether containers are still requested or any container was allocated or completed
+     *             since the previous heartbeat
+     * @return interval before the next heartbeat
+     */
+    int next(boolean busy) {
+        intervalMs = busy ? minIntervalMs : (int) Math.min(maxIntervalMs, 2L * intervalMs);
+        return intervalMs;
+    }
+
+    int getIntervalMs() {
+        return intervalMs;
+    }
+}
@@ -1,27 +1,53 @@
 package com.epam.yarn.master;
 
+import com.epam.yarn.LocalResources;
+import com.epam.yarn.aggregate.HotelCounts;
+import com.epam.yarn.query.GroupedAggregates;
+import com.epam.yarn.query.QuerySpec;
+import com.epam.yarn.split.FileSplit;
+import com.epam.yarn.split.InputSplitter;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.GnuParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.security.Credentials;
+import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.ExitUtil;
 import org.apache.hadoop.yarn.api.ApplicationConstants;
-import org.apache.hadoop.yarn.api.protocolrecords.AllocateResponse;
 import org.apache.hadoop.yarn.api.records.*;
 import org.apache.hadoop.yarn.client.api.AMRMClient;
-import org.apache.hadoop.yarn.client.api.NMClient;
+import org.apache.hadoop.yarn.client.api.async.AMRMClientAsync;
+import org.apache.hadoop.yarn.client.api.async.NMClientAsync;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.security.AMRMTokenIdentifier;
+import org.apache.hadoop.yarn.util.RackResolver;
 import org.apache.hadoop.yarn.util.Records;
 import org.apache.log4j.LogManager;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.epam.yarn.Constants.*;
 import static com.epam.yarn.master.MasterOptions.*;
@@ -34,11 +60,17 @@ public class MasterApp {
 
     private static final Log LOG = LogFactory.getLog(MasterApp.class);
 
+    // Upper bound of the threads starting containers concurrently
+    private static final int MAX_LAUNCH_THREADS = 64;
+
+    // Subdirectory of the result directory holding the partial counts of uncommitted attempts
+    private static final String ATTEMPT_DIR_NAME = "_attempts";
+
     // Application Attempt Id ( combination of attemptId and fail count )
     protected ApplicationAttemptId appAttemptID;
 
-    // No. of containers to run shell command on
-    private int numTotalContainers;
+    // No. of containers to run shell command on, read by the callbacks of the clients
+    private volatile int numTotalContainers;
 
     // Memory to request for the container on which the shell command will run
     private long containerMemory;
@@ -49,6 +81,41 @@ public class MasterApp {
     // Priority of the request
     private int requestPriority;
 
+    // CSV reader used by the containers
+    private String csvReader;
+
+    // File, directory or glob to analyze
+    private String input;
+
+    // Splits served by the queue per container
+    private int splitsPerContainer;
+
+    // Whether idle containers get speculative attempts of the stragglers
+    private boolean speculative;
+
+    // Whether the master analyzes the inputs of the queries sent to it instead of the input
+    private boolean session;
+
+    // Number of the most booked hotels to report
+    private int topK;
+
+    // Number of the hotels the containers and the master count approximately, 0 if all are counted exactly
+    private int sketchCapacity;
+
+    // Query the containers run instead of counting the bookings of couples per hotel, null if there is none.
+    // The queries of a session may give their own
+    private QuerySpec query;
+
+    // Number of failed containers which may be replaced by new ones
+    private int containerRetries;
+
+    // Host of the application master
+    private String appHost;
+
+    // Adapts the interval between the heartbeats to the ResourceManager
+    private HeartbeatScheduler heartbeatScheduler;
+    private MasterMetrics metrics;
+
     // Location of shell script ( obtained from info set in env )
     // Shell script path in fs
     private String appJarPath;
@@ -61,6 +128,36 @@ public class MasterApp {
 
     // Configuration
     private Configuration conf;
+    private FileSystem fs;
+
+    // Clients to ResourceManager and NodeManagers
+    private AMRMClientAsync<AMRMClient.ContainerRequest> amRMClient;
+    private NMClientAsync nmClient;
+
+    // Launch parameters of the containers
+    private SplitQueue queue;
+    private String queueUrl;
+    private SplitPlacement placement;
+    private final List<AMRMClient.ContainerRequest> containerRequests = new ArrayList<>();
+    // Requests for the containers replacing the failed ones, taken by any allocated container
+    private final Queue<AMRMClient.ContainerRequest> retryRequests = new ConcurrentLinkedQueue<>();
+    private Resource capability;
+    private Priority priority;
+    // Shared by all the containers, so the jar and the tokens are set up once
+    private ContainerLaunchContext containerContext;
+
+    // Updated by the callbacks of the clients
+    private final AtomicInteger allocatedContainers = new AtomicInteger();
+    private final AtomicInteger runningContainers = new AtomicInteger();
+    private final AtomicInteger completedContainers = new AtomicInteger();
+    private final AtomicInteger failedContainers = new AtomicInteger();
+    private final AtomicInteger retriedContainers = new AtomicInteger();
+    private final Set<ContainerId> launchedContainers = ConcurrentHashMap.newKeySet();
+    private final Map<ContainerId, Long> launchTimes = new ConcurrentHashMap<>();
+    // Whether any container was allocated or completed since the previous heartbeat
+    private final AtomicBoolean recentActivity = new AtomicBoolean();
+    // Completed once all the containers are completed
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
 
     public MasterApp() {
         conf = new YarnConfiguration();
@@ -88,6 +185,28 @@ public class MasterApp {
         opts.addOption(NUM_CONTAINERS.getName(), true,
                 "No. of containers on which the shell command needs to be executed");
         opts.addOption(PRIORITY.getName(), true, "Application Priority. Default 0");
+        opts.addOption(CSV_READER.getName(), true, "CSV reader used by the containers: bytes (default) or commons");
+        opts.addOption(INPUT.getName(), true, "File, directory or glob to analyze. Default " + INPUT.getDefault());
+        opts.addOption(SPLITS_PER_CONTAINER.getName(), true,
+                "Number of splits per container in the split queue. Default " + SPLITS_PER_CONTAINER.getDefault());
+        opts.addOption(SPECULATIVE.getName(), true,
+                "Whether idle containers run duplicates of the splits processed slower than the median. Default "
+                        + SPECULATIVE.getDefault());
+        opts.addOption(CONTAINER_RETRIES.getName(), true,
+                "Number of failed containers to replace by new ones. Default " + CONTAINER_RETRIES.getDefault());
+        opts.addOption(HEARTBEAT_MIN_MS.getName(), true,
+                "Heartbeat interval while containers are allocated or completed. Default " + HEARTBEAT_MIN_MS.getDefault());
+        opts.addOption(HEARTBEAT_MAX_MS.getName(), true,
+                "Heartbeat interval the master backs off to while nothing happens. Default " + HEARTBEAT_MAX_MS.getDefault());
+        opts.addOption(SESSION.getName(), false,
+                "Keep the containers and analyze the inputs of the queries sent to the tracking URL until stopped");
+        opts.addOption(TOP_K.getName(), true, "Number of the most booked hotels to report. Default " + TOP_K.getDefault());
+        opts.addOption(SKETCH_CAPACITY.getName(), true,
+                "Number of the most booked hotels counted approximately in fixed memory."
+                        + " Default " + SKETCH_CAPACITY.getDefault() + ", all the hotels are counted exactly");
+        opts.addOption(QUERY.getName(), true,
+                "Query to run instead of counting the bookings of couples per hotel, see QuerySpec."
+                        + " A session runs it for the queries which do not give their own");
         opts.addOption(HELP.getName(), false, "Print usage");
 
         CommandLine cliParser = new GnuParser().parse(opts, args);
@@ -114,6 +233,7 @@ public class MasterApp {
         if (!envs.containsKey(ApplicationConstants.Environment.NM_HOST.name())) {
             throw new RuntimeException(ApplicationConstants.Environment.NM_HOST.name() + " not set in the environment");
         }
+        appHost = envs.get(ApplicationConstants.Environment.NM_HOST.name());
         if (!envs.containsKey(ApplicationConstants.Environment.NM_HTTP_PORT.name())) {
             throw new RuntimeException(ApplicationConstants.Environment.NM_HTTP_PORT + " not set in the environment");
         }
@@ -145,12 +265,27 @@ public class MasterApp {
                 + ", attemptId=" + appAttemptID.getAttemptId());
 
         containerMemory = Long.parseLong(cliParser.getOptionValue(CONTAINER_MEMORY.getName(), CONTAINER_MEMORY.getDefault()));
-        containerVirtualCores = Integer.parseInt(cliParser.getOptionValue(CONTAINER_VCORES.getName(), CONTAINER_MEMORY.getDefault()));
+        containerVirtualCores = Integer.parseInt(cliParser.getOptionValue(CONTAINER_VCORES.getName(), CONTAINER_VCORES.getDefault()));
         numTotalContainers = Integer.parseInt(cliParser.getOptionValue(NUM_CONTAINERS.getName(), NUM_CONTAINERS.getDefault()));
         if (numTotalContainers == 0) {
             throw new IllegalArgumentException("Cannot run MyAppliCationMaster with no containers");
         }
         requestPriority = Integer.parseInt(cliParser.getOptionValue(PRIORITY.getName(), PRIORITY.getDefault()));
+        csvReader = cliParser.getOptionValue(CSV_READER.getName(), CSV_READER.getDefault());
+        input = cliParser.getOptionValue(INPUT.getName(), INPUT.getDefault());
+        splitsPerContainer = Integer.parseInt(
+                cliParser.getOptionValue(SPLITS_PER_CONTAINER.getName(), SPLITS_PER_CONTAINER.getDefault()));
+        session = cliParser.hasOption(SESSION.getName());
+        topK = Integer.parseInt(cliParser.getOptionValue(TOP_K.getName(), TOP_K.getDefault()));
+        sketchCapacity = Integer.parseInt(
+                cliParser.getOptionValue(SKETCH_CAPACITY.getName(), SKETCH_CAPACITY.getDefault()));
+        query = cliParser.hasOption(QUERY.getName()) ? QuerySpec.parse(cliParser.getOptionValue(QUERY.getName())) : null;
+        speculative = Boolean.parseBoolean(cliParser.getOptionValue(SPECULATIVE.getName(), SPECULATIVE.getDefault()));
+        containerRetries = Integer.parseInt(
+                cliParser.getOptionValue(CONTAINER_RETRIES.getName(), CONTAINER_RETRIES.getDefault()));
+        heartbeatScheduler = new HeartbeatScheduler(
+                Integer.parseInt(cliParser.getOptionValue(HEARTBEAT_MIN_MS.getName(), HEARTBEAT_MIN_MS.getDefault())),
+                Integer.parseInt(cliParser.getOptionValue(HEARTBEAT_MAX_MS.getName(), HEARTBEAT_MAX_MS.getDefault())));
 
         return true;
     }
@@ -162,121 +297,449 @@ public class MasterApp {
      * @throws org.apache.hadoop.yarn.exceptions.YarnException
      * @throws java.io.IOException
      */
-    @SuppressWarnings({"unchecked"})
     public void run() throws Exception {
         LOG.info("Running MasterApp");
 
+        metrics = MasterMetrics.create();
+        metrics.heartbeatIntervalMs.set(heartbeatScheduler.getIntervalMs());
+
         // Initialize clients to ResourceManager and NodeManagers
-        AMRMClient<AMRMClient.ContainerRequest> amRMClient = AMRMClient.createAMRMClient();
+        amRMClient = AMRMClientAsync.createAMRMClientAsync(heartbeatScheduler.getIntervalMs(), new RMCallbackHandler());
         amRMClient.init(conf);
         amRMClient.start();
 
+        // The containers pull the splits from the queue
+        fs = FileSystem.get(conf);
+        queue = new SplitQueue(speculative);
+        SplitQueueServer queueServer = new SplitQueueServer(queue, fs);
+        queueServer.start();
+        queueUrl = "http://" + appHost + ":" + queueServer.getPort();
+        LOG.info("Serving the split queue at " + queueUrl);
+
+        // Clients wait for the progress at the tracking URL,
+        // a session also analyzes the inputs of the queries sent there until it is stopped
+        TrackingServer trackingServer = new TrackingServer(queue, session ? new MasterSession() : null);
+        trackingServer.start();
+        String trackingUrl = "http://" + appHost + ":" + trackingServer.getPort();
+        LOG.info("Serving the tracking URL at " + trackingUrl);
+
         // Register with ResourceManager
-        amRMClient.registerApplicationMaster("", 0, "");
+        amRMClient.registerApplicationMaster(appHost, 0, trackingUrl);
+
+        // Every job writes its partial counts into the application's result directory
+        Path resultDir = fs.makeQualified(new Path(RESULT_DIR, appAttemptID.getApplicationId().toString()));
+        SplitJob job = null;
+        List<List<FileSplit>> containerSplits;
+        if (session) {
+            // Inputs are not known yet, so the containers are requested anywhere
+            containerSplits = Collections.nCopies(numTotalContainers, Collections.emptyList());
+        } else {
+            // Cut the input into several splits per container
+            Path src = fs.makeQualified(new Path(input));
+            List<FileStatus> files = InputSplitter.listFiles(fs, src);
+            List<FileSplit> splits = InputSplitter.split(conf, files, numTotalContainers * splitsPerContainer);
+            containerSplits = InputSplitter.assign(splits, numTotalContainers);
+            LOG.info("Input " + src + " consists of " + files.size() + " files and " + splits.size() + " splits");
+            if (containerSplits.size() < numTotalContainers) {
+                LOG.info("Reducing number of containers from " + numTotalContainers + " to " + containerSplits.size());
+                numTotalContainers = containerSplits.size();
+            }
+            job = submitJob(splits, resultDir, query);
+            queue.close();
+        }
+
+        // Setup CLASSPATH for Container
+        StringBuilder classPathEnv = new StringBuilder(ApplicationConstants.Environment.CLASSPATH.$$())
+                .append(CLASS_PATH_SEPARATOR)
+                .append("./*");
+
+        for (String c : conf.getStrings(
+                YARN_APPLICATION_CLASSPATH,
+                DEFAULT_YARN_CROSS_PLATFORM_APPLICATION_CLASSPATH)) {
+            classPathEnv.append(CLASS_PATH_SEPARATOR);
+            classPathEnv.append(c.trim());
+        }
+
+        Map<String, String> containerEnv = new HashMap<>();
+        containerEnv.put("CLASSPATH", classPathEnv.toString());
+
+        // Setup ApplicationMaster jar file and tokens for Container
+        containerContext = createContainerLaunchContext(createAppMasterJar(), containerEnv, createContainerTokens());
+
+        // Containers are started concurrently by the thread pool of the NodeManager client
+        conf.setInt(YarnConfiguration.NM_CLIENT_ASYNC_THREAD_POOL_MAX_SIZE,
+                Math.max(1, Math.min(numTotalContainers, MAX_LAUNCH_THREADS)));
+        nmClient = NMClientAsync.createNMClientAsync(new NMCallbackHandler());
+        nmClient.init(conf);
+        nmClient.start();
 
         // Set up resource type requirements for Container
-        Resource capability = Records.newRecord(Resource.class);
+        capability = Records.newRecord(Resource.class);
         capability.setMemorySize(containerMemory);
         capability.setVirtualCores(containerVirtualCores);
 
         // Priority for worker containers - priorities are intra-application
-        Priority priority = Records.newRecord(Priority.class);
+        priority = Records.newRecord(Priority.class);
         priority.setPriority(requestPriority);
 
-        // Make container requests to ResourceManager
+        // Ask for containers next to the blocks of the splits they are likely to process, falling back
+        // to the rack and then to any host. The callbacks launch and count the containers
+        placement = SplitPlacement.plan(fs, containerSplits);
+        RackResolver.init(conf);
         for (int i = 0; i < numTotalContainers; ++i) {
-            AMRMClient.ContainerRequest containerAsk = new AMRMClient.ContainerRequest(capability, null, null, priority);
+            AMRMClient.ContainerRequest containerAsk = new AMRMClient.ContainerRequest(
+                    capability, placement.getHosts(i), placement.getRacks(i), priority, true);
+            containerRequests.add(containerAsk);
             amRMClient.addContainerRequest(containerAsk);
         }
+        if (numTotalContainers == 0) {
+            done.complete(null);
+        }
 
+        FinalApplicationStatus finalStatus = FinalApplicationStatus.FAILED;
+        String diagnostics;
+        try {
+            done.get();
+            LOG.info("Completed containers:" + completedContainers + ", failed containers:" + failedContainers
+                    + ", replaced containers:" + retriedContainers + ", " + placement);
+
+            // Tasks of the failed containers are processed by the other ones, unless all of them failed
+            diagnostics = "Not all the tasks were completed, " + failedContainers + " containers failed, "
+                    + retriedContainers + " of them were replaced";
+            if (job != null && job.isComplete()) {
+                mergePartialCounts(job, topK);
+                finalStatus = FinalApplicationStatus.SUCCEEDED;
+                diagnostics = "Result is written to " + new Path(resultDir, RESULT_NAME);
+            } else if (job == null && queue.isDrained()) {
+                finalStatus = FinalApplicationStatus.SUCCEEDED;
+                diagnostics = "Session is stopped";
+            }
+        } catch (ExecutionException e) {
+            diagnostics = "Application master failed: " + e.getCause().getMessage();
+        }
+        LOG.info(diagnostics);
 
-        NMClient nmClient = NMClient.createNMClient();
-        nmClient.init(conf);
-        nmClient.start();
+        // Queries still waiting for their jobs get the diagnostics
+        queue.failJobs(new IllegalStateException(diagnostics));
+        trackingServer.stop();
+        queueServer.stop();
+        nmClient.stop();
 
-        // Setup CLASSPATH for Container
-        StringBuilder classPathEnv = new StringBuilder(ApplicationConstants.Environment.CLASSPATH.$$())
-                .append(CLASS_PATH_SEPARATOR)
-                .append("./*");
+        // Un-register with ResourceManager
+        amRMClient.unregisterApplicationMaster(finalStatus, diagnostics, "");
+        amRMClient.stop();
+        MasterMetrics.shutdown();
+        LOG.info("Finished MyApplicationMaster");
+    }
 
-        for (String c : conf.getStrings(
-                YARN_APPLICATION_CLASSPATH,
-                DEFAULT_YARN_CROSS_PLATFORM_APPLICATION_CLASSPATH)) {
-            classPathEnv.append(CLASS_PATH_SEPARATOR);
-            classPathEnv.append(c.trim());
+
+    private void containerCompleted(ContainerId containerId, boolean succeeded) {
+        // Localizing the jar from the node cache takes little of the startup time, downloading it takes much
+        Long launchTime = launchTimes.remove(containerId);
+        Long firstRequestTime = queue.getFirstRequestTime(containerId.toString());
+        if (launchTime != null && firstRequestTime != null) {
+            long startupMs = firstRequestTime - launchTime;
+            metrics.containerStartupMs.add(startupMs);
+            LOG.info("Container " + containerId + " asked for its first split " + startupMs + " ms after its launch");
         }
 
-        Map<String, String> containerEnv = new HashMap<>();
-        containerEnv.put("CLASSPATH", classPathEnv.toString());
+        queue.containerCompleted(containerId.toString());
+        if (!succeeded) {
+            failedContainers.incrementAndGet();
+            // A replacement takes over the place of the failed container while the budget lasts
+            if (!queue.isDrained()
+                    && retriedContainers.getAndUpdate(n -> n < containerRetries ? n + 1 : n) < containerRetries) {
+                LOG.info("Requesting a container to replace " + containerId + ", replaced containers:"
+                        + retriedContainers + " of " + containerRetries);
+                AMRMClient.ContainerRequest retryAsk = new AMRMClient.ContainerRequest(capability, null, null, priority);
+                retryRequests.add(retryAsk);
+                amRMClient.addContainerRequest(retryAsk);
+                return;
+            }
+        }
+        if (completedContainers.incrementAndGet() == numTotalContainers) {
+            done.complete(null);
+        }
+    }
+
+
+    private void adaptHeartbeatInterval() {
+        int previousIntervalMs = heartbeatScheduler.getIntervalMs();
+        boolean busy = allocatedContainers.get() < numTotalContainers || !retryRequests.isEmpty()
+                || recentActivity.getAndSet(false);
+        int intervalMs = heartbeatScheduler.next(busy);
+        if (intervalMs != previousIntervalMs) {
+            LOG.debug("Heartbeat interval changed from " + previousIntervalMs + " to " + intervalMs + " ms");
+            amRMClient.setHeartbeatInterval(intervalMs);
+            metrics.heartbeatIntervalMs.set(intervalMs);
+        }
+    }
+
+
+    /**
+     * Launches the allocated containers and counts the completed ones
+     */
+    private class RMCallbackHandler extends AMRMClientAsync.AbstractCallbackHandler {
+
+        @Override
+        public void onContainersAllocated(List<Container> containers) {
+            recentActivity.set(true);
+            for (Container container : containers) {
+                String host = container.getNodeId().getHost();
+                Integer index = placement.take(host, RackResolver.resolve(host).getNetworkLocation());
+                AMRMClient.ContainerRequest request = index != null ? containerRequests.get(index) : retryRequests.poll();
+                if (request == null) {
+                    amRMClient.releaseAssignedContainer(container.getId());
+                    continue;
+                }
+                // The request is satisfied, so the RM does not allocate another container for it
+                amRMClient.removeContainerRequest(request);
+                allocatedContainers.incrementAndGet();
+                LOG.info("Launching container " + container.getId() + " on " + host);
+
+                launchedContainers.add(container.getId());
+                launchTimes.put(container.getId(), System.currentTimeMillis());
+                nmClient.startContainerAsync(container, containerContext);
+            }
+        }
+
+        @Override
+        public void onContainersCompleted(List<ContainerStatus> statuses) {
+            recentActivity.set(true);
+            for (ContainerStatus status : statuses) {
+                LOG.info("ContainerID:" + status.getContainerId() + ", state:" + status.getState().name()
+                        + ", exitStatus:" + status.getExitStatus());
+                // Released containers are never launched
+                if (launchedContainers.remove(status.getContainerId())) {
+                    containerCompleted(status.getContainerId(), status.getExitStatus() == ContainerExitStatus.SUCCESS);
+                }
+            }
+        }
+
+        @Override
+        public void onContainersUpdated(List<UpdatedContainer> containers) {
+        }
+
+        @Override
+        public void onShutdownRequest() {
+            done.completeExceptionally(new IllegalStateException("Shutdown requested by ResourceManager"));
+        }
+
+        @Override
+        public void onNodesUpdated(List<NodeReport> updatedNodes) {
+        }
+
+        /**
+         * Called by the callback handler thread after it handles an allocate response, the heartbeat thread
+         * only sends the value cached then. So the heartbeat interval is adapted once per response, and a change
+         * takes effect from the heartbeat after the next one at the earliest
+         */
+        @Override
+        public float getProgress() {
+            adaptHeartbeatInterval();
+            return numTotalContainers == 0 ? 1 : (float) completedContainers.get() / numTotalContainers;
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+
+    // Container resource increase callbacks are deprecated in favour of the update ones, yet still abstract
+    @SuppressWarnings("deprecation")
+    private class NMCallbackHandler extends NMClientAsync.AbstractCallbackHandler {
+
+        @Override
+        public void onContainerStarted(ContainerId containerId, Map<String, ByteBuffer> allServiceResponse) {
+            LOG.info("Started container " + containerId + ", running containers:" + runningContainers.incrementAndGet());
+        }
+
+        @Override
+        public void onStartContainerError(ContainerId containerId, Throwable t) {
+            LOG.error("Failed to start container " + containerId, t);
+            if (launchedContainers.remove(containerId)) {
+                amRMClient.releaseAssignedContainer(containerId);
+                containerCompleted(containerId, false);
+            }
+        }
+
+        @Override
+        public void onContainerStatusReceived(ContainerId containerId, ContainerStatus containerStatus) {
+        }
+
+        @Override
+        public void onContainerStopped(ContainerId containerId) {
+        }
+
+        @Override
+        public void onContainerResourceIncreased(ContainerId containerId, Resource resource) {
+        }
+
+        @Override
+        public void onContainerResourceUpdated(ContainerId containerId, Resource resource) {
+        }
+
+        @Override
+        public void onGetContainerStatusError(ContainerId containerId, Throwable t) {
+        }
+
+        @Override
+        public void onIncreaseContainerResourceError(ContainerId containerId, Throwable t) {
+        }
+
+        @Override
+        public void onUpdateContainerResourceError(ContainerId containerId, Throwable t) {
+        }
+
+        @Override
+        public void onStopContainerError(ContainerId containerId, Throwable t) {
+        }
+    }
 
-        // Setup ApplicationMaster jar file for Container
-        LocalResource appMasterJar = createAppMasterJar();
-
-        // Obtain allocated containers and launch
-        int allocatedContainers = 0;
-        // We need to start counting completed containers while still allocating
-        // them since initial ones may complete while we're allocating subsequent
-        // containers and if we miss those notifications, we'll never see them again
-        // and this ApplicationMaster will hang indefinitely.
-        int completedContainers = 0;
-        while (allocatedContainers < numTotalContainers) {
-            AllocateResponse response = amRMClient.allocate(0);
-            for (Container container : response.getAllocatedContainers()) {
-                allocatedContainers++;
-
-                ContainerLaunchContext containerContext = createContainerLaunchContext(appMasterJar, containerEnv);
-                LOG.info("Launching container " + allocatedContainers);
-
-                nmClient.startContainer(container, containerContext);
+
+    /**
+     * Adds the tasks of the splits to the queue
+     *
+     * @param resultDir directory for the partial counts and the result of the job
+     * @param query     query the tasks run, null if they count the bookings of couples per hotel
+     */
+    private SplitJob submitJob(List<FileSplit> splits, Path resultDir, QuerySpec query) throws IOException {
+        Path attemptDir = new Path(resultDir, ATTEMPT_DIR_NAME);
+        fs.mkdirs(attemptDir);
+
+        List<List<FileSplit>> taskSplits = new ArrayList<>();
+        for (FileSplit split : splits) {
+            taskSplits.add(Collections.singletonList(split));
+        }
+        SplitJob job = queue.addJob(splits, SplitPlacement.plan(fs, taskSplits), resultDir, attemptDir, query);
+        LOG.info("Job " + job.getId() + " consists of " + job.getTotalTasks() + " tasks");
+        return job;
+    }
+
+
+    /**
+     * Merges the partial results committed by the tasks of the complete job and writes the top of the result,
+     * the most booked hotels unless the tasks of the job run a query
+     *
+     * @param topK number of the reported hotels or groups, the query may set its own
+     * @return the top of the result
+     */
+    private List<String> mergePartialCounts(SplitJob job, int topK) throws IOException {
+        FileStatus[] partials = fs.listStatus(job.getResultDir(), path -> path.getName().startsWith("part-"));
+        if (partials.length != job.getTotalTasks()) {
+            throw new IOException("Expected partial counts of " + job.getTotalTasks() + " tasks, found " + partials.length);
+        }
+
+        List<String> top;
+        QuerySpec query = job.getQuery();
+        if (query != null) {
+            GroupedAggregates aggregates = new GroupedAggregates(query);
+            for (FileStatus partial : partials) {
+                aggregates.readFields(fs, partial.getPath());
             }
-            for (ContainerStatus status : response.getCompletedContainersStatuses()) {
-                completedContainers++;
-                LOG.info("ContainerID:" + status.getContainerId() + ", state:" + status.getState().name());
+            LOG.info("Merged partial aggregates of " + aggregates.size() + " groups of query " + query);
+            top = aggregates.top(query.getTopK() > 0 ? query.getTopK() : topK);
+        } else {
+            HotelCounts hotelCounts = new HotelCounts(sketchCapacity);
+            for (FileStatus partial : partials) {
+                hotelCounts.readFields(fs, partial.getPath());
             }
-            Thread.sleep(1000);
+            LOG.info("Merged partial counts of " + hotelCounts.size() + " hotels");
+            top = hotelCounts.top(topK);
+            if (hotelCounts.isApproximate()) {
+                top.add(hotelCounts.describeAccuracy());
+            }
+        }
+
+        Path result = new Path(job.getResultDir(), RESULT_NAME);
+        try (FSDataOutputStream out = fs.create(result, true);
+             PrintStream printer = new PrintStream(out, false, StandardCharsets.UTF_8.name())) {
+            top.forEach(line -> {
+                LOG.info(line);
+                printer.println(line);
+            });
         }
+        fs.delete(job.getAttemptDir(), true);
+        return top;
+    }
 
-        // Now wait for the remaining containers to complete
-        while (completedContainers < numTotalContainers) {
-            AllocateResponse response = amRMClient.allocate(completedContainers / numTotalContainers);
-            for (ContainerStatus status : response.getCompletedContainersStatuses()) {
-                completedContainers++;
-                LOG.info("ContainerID:" + status.getContainerId() + ", state:" + status.getState().name());
+
+    /**
+     * Runs the queries of a session as jobs of the split queue
+     */
+    private class MasterSession implements TrackingServer.Session {
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        @Override
+        public SplitJob submit(String input, QuerySpec query) throws IOException {
+            if (input == null || input.isEmpty()) {
+                throw new IllegalArgumentException("Input is not given");
             }
-            Thread.sleep(1000);
+            List<FileSplit> splits = InputSplitter.split(conf, InputSplitter.listFiles(fs, fs.makeQualified(new Path(input))),
+                    numTotalContainers * splitsPerContainer);
+            Path resultDir = fs.makeQualified(new Path(RESULT_DIR,
+                    appAttemptID.getApplicationId() + "/query-" + queries.incrementAndGet()));
+            return submitJob(splits, resultDir, query != null ? query : MasterApp.this.query);
         }
 
-        LOG.info("Completed containers:" + completedContainers);
+        @Override
+        public List<String> result(SplitJob job, int topK) throws IOException {
+            return mergePartialCounts(job, topK);
+        }
 
-        // Un-register with ResourceManager
-        amRMClient.unregisterApplicationMaster(
-                FinalApplicationStatus.SUCCEEDED, "", "");
-        LOG.info("Finished MyApplicationMaster");
+        @Override
+        public void stop() {
+            queue.close();
+        }
     }
 
 
+    /**
+     * Describes the jar uploaded by the client, the containers localize it with the visibility its permissions allow
+     *
+     * @throws IOException if the jar was changed since the submission, the localization would fail then
+     */
     private LocalResource createAppMasterJar() throws IOException {
-        LocalResource appMasterJar = Records.newRecord(LocalResource.class);
-        if (!appJarPath.isEmpty()) {
-            appMasterJar.setType(LocalResourceType.FILE);
-            Path jarPath = new Path(appJarPath);
-            jarPath = FileSystem.get(conf).makeQualified(jarPath);
-            appMasterJar.setResource(URL.fromURI(jarPath.toUri()));
-            appMasterJar.setTimestamp(appJarTimestamp);
-            appMasterJar.setSize(appJarPathLen);
-            appMasterJar.setVisibility(LocalResourceVisibility.PUBLIC);
+        if (appJarPath.isEmpty()) {
+            return Records.newRecord(LocalResource.class);
         }
+        FileSystem fs = FileSystem.get(conf);
+        Path jarPath = fs.makeQualified(new Path(appJarPath));
+        LocalResource appMasterJar = LocalResources.newFileResource(fs, jarPath);
+        if (appMasterJar.getSize() != appJarPathLen || appMasterJar.getTimestamp() != appJarTimestamp) {
+            throw new IOException("Jar " + jarPath + " was changed since the submission: length "
+                    + appMasterJar.getSize() + ", timestamp " + appMasterJar.getTimestamp()
+                    + " instead of " + appJarPathLen + ", " + appJarTimestamp);
+        }
+        LOG.info("Containers localize " + jarPath + " with " + appMasterJar.getVisibility() + " visibility");
         return appMasterJar;
     }
 
 
+    /**
+     * Serializes the tokens of the master except the one for the ResourceManager, which is for the master only
+     */
+    private ByteBuffer createContainerTokens() throws IOException {
+        Credentials credentials = UserGroupInformation.getCurrentUser().getCredentials();
+        credentials.getAllTokens().removeIf(token -> AMRMTokenIdentifier.KIND_NAME.equals(token.getKind()));
+        DataOutputBuffer tokens = new DataOutputBuffer();
+        credentials.writeTokenStorageToStream(tokens);
+        return ByteBuffer.wrap(tokens.getData(), 0, tokens.getLength());
+    }
+
+
     /**
      * Launch container by create ContainerLaunchContext
      */
     private ContainerLaunchContext createContainerLaunchContext(LocalResource appMasterJar,
-                                                                Map<String, String> containerEnv) {
+                                                                Map<String, String> containerEnv,
+                                                                ByteBuffer tokens) {
         ContainerLaunchContext appContainer =
                 Records.newRecord(ContainerLaunchContext.class);
+        appContainer.setTokens(tokens);
         appContainer.setLocalResources(
                 Collections.singletonMap(AM_JAR_NAME, appMasterJar));
         appContainer.setEnvironment(containerEnv);
@@ -285,6 +748,12 @@ public class MasterApp {
                         "$JAVA_HOME/bin/java" +
                                 " -Xmx" + containerMemory + "m" +
                                 " com.epam.yarn.container.BookingAnalyzer" +
+                                " --split_queue " + queueUrl +
+                                " --csv_reader " + csvReader +
+                                " --threads " + containerVirtualCores +
+                                " --top_k " + topK +
+                                " --sketch_capacity " + sketchCapacity +
+                                (query != null ? " --query '" + query + "'" : "") +
                                 " 1>" + LOG_DIR_EXPANSION_VAR + "/Container.stdout" +
                                 " 2>" + LOG_DIR_EXPANSION_VAR + "/Container.stderr"
                 )
@@ -0,0 +1,30 @@
+package com.epam.yarn.master;
+
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+
+/**
+ * Metrics of the application master, published through the Hadoop metrics system
+ */
+@Metrics(about = "Booking analyzer application master", context = "yarn")
+class MasterMetrics {
+
+    @Metric("Interval between the heartbeats to the ResourceManager in ms")
+    MutableGaugeInt heartbeatIntervalMs;
+
+    @Metric("Time from the launch of a container to its first request for a split in ms")
+    MutableRate containerStartupMs;
+
+    static MasterMetrics create() {
+        DefaultMetricsSystem.initialize("MasterApp");
+        return DefaultMetricsSystem.instance().register("MasterApp", "Booking analyzer application master",
+                new MasterMetrics());
+    }
+
+    static void shutdown() {
+        DefaultMetricsSystem.shutdown();
+    }
+}
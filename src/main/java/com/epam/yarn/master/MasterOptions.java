@@ -1,5 +1,8 @@
 package com.epam.yarn.master;
 
+import static com.epam.yarn.Constants.BOOKING_SOURCE;
+import static com.epam.yarn.Constants.TOP_HOTELS;
+
 public enum  MasterOptions {
     APP_ATTEMPT_ID ("app_attempt_id", ""),
     SHELL_ENV ("shell_env", ""),
@@ -7,6 +10,17 @@ public enum  MasterOptions {
     CONTAINER_VCORES ("container_vcores", "1"),
     NUM_CONTAINERS ("num_containers", "1"),
     PRIORITY ("priority", "0"),
+    CSV_READER ("csv_reader", "bytes"),
+    INPUT ("input", BOOKING_SOURCE),
+    SPLITS_PER_CONTAINER ("splits_per_container", "4"),
+    SPECULATIVE ("speculative", "true"),
+    CONTAINER_RETRIES ("container_retries", "3"),
+    HEARTBEAT_MIN_MS ("heartbeat_min_ms", "100"),
+    HEARTBEAT_MAX_MS ("heartbeat_max_ms", "5000"),
+    SESSION ("session", ""),
+    TOP_K ("top_k", String.valueOf(TOP_HOTELS)),
+    SKETCH_CAPACITY ("sketch_capacity", "0"),
+    QUERY ("query", ""),
     HELP ("help", "");
 
     private String name;
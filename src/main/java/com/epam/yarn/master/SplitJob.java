@@ -0,0 +1,74 @@
+package com.epam.yarn.master;
+
+import com.epam.yarn.query.QuerySpec;
+import org.apache.hadoop.fs.Path;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analysis of one input: the tasks of its splits in the {@link SplitQueue}, the query they run and the directories
+ * of their partial counts. The committed partial counts of the tasks are {@code part-<task id>}
+ * files of the result directory.
+ */
+class SplitJob {
+
+    private final int id;
+    private final Path resultDir;
+    private final Path attemptDir;
+    private final int totalTasks;
+    // Query the tasks run, null if they count the bookings of couples per hotel
+    private final QuerySpec query;
+    private final AtomicInteger completedTasks = new AtomicInteger();
+    // Completed once the partial counts of all the tasks are committed
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    SplitJob(int id, Path resultDir, Path attemptDir, int totalTasks, QuerySpec query) {
+        this.id = id;
+        this.resultDir = resultDir;
+        this.attemptDir = attemptDir;
+        this.totalTasks = totalTasks;
+        this.query = query;
+        if (totalTasks == 0) {
+            done.complete(null);
+        }
+    }
+
+    void taskCompleted() {
+        if (completedTasks.incrementAndGet() == totalTasks) {
+            done.complete(null);
+        }
+    }
+
+    int getId() {
+        return id;
+    }
+
+    Path getResultDir() {
+        return resultDir;
+    }
+
+    Path getAttemptDir() {
+        return attemptDir;
+    }
+
+    int getTotalTasks() {
+        return totalTasks;
+    }
+
+    QuerySpec getQuery() {
+        return query;
+    }
+
+    int getCompletedTasks() {
+        return completedTasks.get();
+    }
+
+    CompletableFuture<Void> getDone() {
+        return done;
+    }
+
+    boolean isComplete() {
+        return completedTasks.get() == totalTasks;
+    }
+}
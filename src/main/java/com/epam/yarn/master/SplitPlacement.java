@@ -0,0 +1,140 @@
+package com.epam.yarn.master;
+
+import com.epam.yarn.split.FileSplit;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileSystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Preferred hosts and racks of the groups of splits assigned to the containers.
+ * <p>
+ * The hosts of a group are the ones storing most of its bytes according to the block locations.
+ * Allocated containers take the pending group stored on their host, then the one stored
+ * on their rack, then any pending group.
+ */
+class SplitPlacement {
+
+    // Hosts requested per container, HDFS keeps 3 replicas by default
+    static final int MAX_HOSTS = 3;
+
+    private final List<String[]> hosts = new ArrayList<>();
+    private final List<String[]> racks = new ArrayList<>();
+    private final Set<Integer> pending = new LinkedHashSet<>();
+
+    private int nodeLocal;
+    private int rackLocal;
+    private int offSwitch;
+
+    private SplitPlacement() {
+    }
+
+    /**
+     * Looks up the block locations of all the splits
+     *
+     * @param groups splits of every container
+     */
+    static SplitPlacement plan(FileSystem fs, List<List<FileSplit>> groups) throws IOException {
+        SplitPlacement placement = new SplitPlacement();
+        for (List<FileSplit> group : groups) {
+            Map<String, Long> hostBytes = new HashMap<>();
+            Map<String, String> hostRacks = new HashMap<>();
+            for (FileSplit split : group) {
+                for (BlockLocation block : fs.getFileBlockLocations(split.getPath(), split.getStart(), split.getLength())) {
+                    long overlap = Math.min(block.getOffset() + block.getLength(), split.getEnd())
+                            - Math.max(block.getOffset(), split.getStart());
+                    if (overlap <= 0) {
+                        continue;
+                    }
+                    // Topology paths are /rack/address of the same replicas as the hosts
+                    String[] blockHosts = block.getHosts();
+                    String[] topologyPaths = block.getTopologyPaths();
+                    for (int i = 0; i < blockHosts.length; i++) {
+                        hostBytes.merge(blockHosts[i], overlap, Long::sum);
+                        if (i < topologyPaths.length && topologyPaths[i].lastIndexOf('/') > 0) {
+                            hostRacks.put(blockHosts[i], topologyPaths[i].substring(0, topologyPaths[i].lastIndexOf('/')));
+                        }
+                    }
+                }
+            }
+
+            String[] groupHosts = hostBytes.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(MAX_HOSTS)
+                    .map(Map.Entry::getKey)
+                    .toArray(String[]::new);
+            String[] groupRacks = Arrays.stream(groupHosts)
+                    .map(hostRacks::get)
+                    .filter(rack -> rack != null)
+                    .distinct()
+                    .toArray(String[]::new);
+
+            placement.pending.add(placement.hosts.size());
+            placement.hosts.add(groupHosts.length == 0 ? null : groupHosts);
+            placement.racks.add(groupRacks.length == 0 ? null : groupRacks);
+        }
+        return placement;
+    }
+
+    /**
+     * @return preferred hosts of the group, {@code null} if unknown
+     */
+    String[] getHosts(int group) {
+        return hosts.get(group);
+    }
+
+    /**
+     * @return preferred racks of the group, {@code null} if unknown
+     */
+    String[] getRacks(int group) {
+        return racks.get(group);
+    }
+
+    /**
+     * Removes the group which suits a container allocated on the given host best
+     *
+     * @return index of the group, {@code null} if no group is pending
+     */
+    synchronized Integer take(String host, String rack) {
+        Integer rackLocalGroup = null;
+        for (Integer group : pending) {
+            if (contains(hosts.get(group), host)) {
+                nodeLocal++;
+                pending.remove(group);
+                return group;
+            }
+            if (rackLocalGroup == null && contains(racks.get(group), rack)) {
+                rackLocalGroup = group;
+            }
+        }
+
+        if (rackLocalGroup != null) {
+            rackLocal++;
+            pending.remove(rackLocalGroup);
+            return rackLocalGroup;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        offSwitch++;
+        Integer group = pending.iterator().next();
+        pending.remove(group);
+        return group;
+    }
+
+    private static boolean contains(String[] values, String value) {
+        return values != null && value != null && Arrays.asList(values).contains(value);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "node local groups:" + nodeLocal + ", rack local groups:" + rackLocal + ", off switch groups:" + offSwitch;
+    }
+}
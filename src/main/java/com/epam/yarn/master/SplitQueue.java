@@ -0,0 +1,393 @@
+package com.epam.yarn.master;
+
+import com.epam.yarn.query.QuerySpec;
+import com.epam.yarn.split.FileSplit;
+import com.epam.yarn.split.SplitTask;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits waiting to be processed by the containers.
+ * <p>
+ * Every {@link SplitJob} adds the tasks of its splits, the jobs share the containers. The queue drains once it is
+ * closed and all the tasks are committed, then the containers exit.
+ * <p>
+ * Containers pull the next task whenever they are done with the previous one, so fast containers process
+ * more splits than slow ones. A container prefers the splits stored on its host. Attempts of completed
+ * containers are given back to the queue.
+ * <p>
+ * Running attempts report the bytes they processed. Once no split is pending, idle containers may get
+ * a speculative attempt of a straggler, the attempt processing its split slower than
+ * {@link #STRAGGLER_RATE} of the median rate of the attempts. The first committed attempt of a task wins,
+ * the other ones are aborted when they report their progress next time.
+ */
+class SplitQueue {
+
+    // Fraction of the median rate below which a running attempt is a straggler
+    static final double STRAGGLER_RATE = 0.5;
+    // Attempts younger than that have not reported a meaningful rate yet
+    static final long MIN_STRAGGLER_MS = 10_000;
+    // Rates needed to compute a meaningful median
+    static final int MIN_RATES = 3;
+
+    private final List<SplitJob> jobs = new ArrayList<>();
+    private final List<Task> tasks = new ArrayList<>();
+    private final Set<Integer> pending = new LinkedHashSet<>();
+    // Tasks with running attempts
+    private final Set<Task> active = new LinkedHashSet<>();
+    private final boolean speculative;
+    private int completedTasks;
+    private boolean closed;
+    // Bytes per millisecond of the committed attempts
+    private final List<Double> committedRates = new ArrayList<>();
+    // Time of the first request of every container
+    private final Map<String, Long> firstRequests = new HashMap<>();
+
+    /**
+     * @param speculative whether idle containers get speculative attempts of the stragglers
+     */
+    SplitQueue(boolean speculative) {
+        this.speculative = speculative;
+    }
+
+    /**
+     * @param splits     splits to process, one task per split
+     * @param placement  preferred hosts of every split
+     * @param resultDir  directory for the committed partial counts
+     * @param attemptDir directory for the partial counts of the attempts
+     * @param query      query the tasks run, null if they count the bookings of couples per hotel
+     */
+    synchronized SplitJob addJob(List<FileSplit> splits, SplitPlacement placement, Path resultDir, Path attemptDir,
+                                 QuerySpec query) {
+        if (closed) {
+            throw new IllegalStateException("Queue is closed");
+        }
+        SplitJob job = new SplitJob(jobs.size(), resultDir, attemptDir, splits.size(), query);
+        jobs.add(job);
+        for (int i = 0; i < splits.size(); i++) {
+            Task task = new Task(tasks.size(), job, splits.get(i), placement.getHosts(i));
+            tasks.add(task);
+            pending.add(task.id);
+        }
+        return job;
+    }
+
+    /**
+     * No more jobs are added, the queue drains once the tasks of the added ones are committed
+     */
+    synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * @return whether the queue is closed and all the tasks are committed, so the containers may exit
+     */
+    synchronized boolean isDrained() {
+        return closed && completedTasks == tasks.size();
+    }
+
+    synchronized int getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * @return number of the tasks of all the jobs added so far
+     */
+    synchronized int getTotalTasks() {
+        return tasks.size();
+    }
+
+    /**
+     * Waits until the number of completed tasks differs from the given one or the queue drains
+     *
+     * @param completed number of the completed tasks the caller knows about
+     */
+    synchronized void awaitProgress(int completed, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remainingMs = timeoutMs;
+        while (completedTasks == completed && !isDrained() && remainingMs > 0) {
+            wait(remainingMs);
+            remainingMs = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Fails the jobs which are not complete, for instance when no container is left to process them
+     */
+    synchronized void failJobs(Throwable cause) {
+        for (SplitJob job : jobs) {
+            job.getDone().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * @return the next attempt for the container, {@code null} if the container has to wait
+     * for running attempts, which may fail, or for new jobs
+     */
+    synchronized SplitTask next(String containerId, String host) {
+        firstRequests.putIfAbsent(containerId, System.currentTimeMillis());
+        Task task = takePending(host);
+        if (task == null && speculative) {
+            task = straggler(containerId, System.currentTimeMillis());
+        }
+        if (task == null) {
+            return null;
+        }
+
+        int attempt = task.attempts++;
+        task.running.put(attempt, new Attempt(containerId, System.currentTimeMillis()));
+        active.add(task);
+        return new SplitTask(task.id, attempt, getOutput(task.id, attempt), task.job.getQuery(), task.split);
+    }
+
+    /**
+     * @return file for the partial counts of the attempt
+     */
+    Path getOutput(int taskId, int attempt) {
+        return new Path(tasks.get(taskId).job.getAttemptDir(), "task-" + taskId + "_" + attempt);
+    }
+
+    private Task takePending(String host) {
+        Integer chosen = null;
+        for (Integer id : pending) {
+            String[] hosts = tasks.get(id).hosts;
+            if (hosts != null && Arrays.asList(hosts).contains(host)) {
+                chosen = id;
+                break;
+            }
+            if (chosen == null) {
+                chosen = id;
+            }
+        }
+        if (chosen == null) {
+            return null;
+        }
+        pending.remove(chosen);
+        return tasks.get(chosen);
+    }
+
+    // Slowest straggler with a single attempt, except the ones of the container itself
+    private Task straggler(String containerId, long now) {
+        List<Double> rates = new ArrayList<>(committedRates);
+        for (Task task : active) {
+            // Losing attempts of committed tasks stop reporting until they are aborted
+            if (task.done) {
+                continue;
+            }
+            for (Attempt attempt : task.running.values()) {
+                if (now - attempt.startTime >= MIN_STRAGGLER_MS) {
+                    rates.add(attempt.rate(now));
+                }
+            }
+        }
+        if (rates.size() < MIN_RATES) {
+            return null;
+        }
+        Collections.sort(rates);
+        double threshold = STRAGGLER_RATE * rates.get(rates.size() / 2);
+
+        Task slowest = null;
+        double slowestRate = threshold;
+        for (Task task : active) {
+            if (task.done || task.committing || task.running.size() != 1) {
+                continue;
+            }
+            Attempt attempt = task.running.values().iterator().next();
+            if (!attempt.containerId.equals(containerId) && now - attempt.startTime >= MIN_STRAGGLER_MS
+                    && attempt.rate(now) < slowestRate) {
+                slowest = task;
+                slowestRate = attempt.rate(now);
+            }
+        }
+        return slowest;
+    }
+
+    /**
+     * Records the bytes processed by the attempt so far
+     *
+     * @return whether the attempt should go on, {@code false} if its task is committed or the attempt
+     * was given up on. The attempt is removed then, as the container drops it without committing
+     */
+    synchronized boolean progress(int taskId, int attempt, long bytes) {
+        Task task = tasks.get(taskId);
+        Attempt running = task.running.get(attempt);
+        if (running == null) {
+            return false;
+        }
+        if (task.done) {
+            removeAttempt(task, attempt);
+            return false;
+        }
+        running.bytes = bytes;
+        return true;
+    }
+
+    /**
+     * Publishes the partial counts of the first committed attempt of the task.
+     * The task is complete once they are published, if publishing fails the attempt fails.
+     * <p>
+     * The winner is chosen under the lock of the queue, but published outside of it, so the other
+     * containers are not stalled by the file system meanwhile. Attempts committed while the winner
+     * is being published lose.
+     *
+     * @return whether the attempt is the first committed one of its task
+     */
+    boolean commit(int taskId, int attempt, long bytes, Publisher publisher) throws IOException {
+        Task task;
+        synchronized (this) {
+            task = tasks.get(taskId);
+            if (task.done || task.committing) {
+                removeAttempt(task, attempt);
+                return false;
+            }
+            task.committing = true;
+        }
+
+        try {
+            publisher.publish(getOutput(taskId, attempt), new Path(task.job.getResultDir(), "part-" + taskId));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                task.committing = false;
+                fail(taskId, attempt);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            Attempt committed = removeAttempt(task, attempt);
+            task.committing = false;
+            task.done = true;
+            completedTasks++;
+            pending.remove(taskId);
+            if (committed != null) {
+                committed.bytes = bytes;
+                committedRates.add(committed.rate(System.currentTimeMillis()));
+            }
+            task.job.taskCompleted();
+            notifyAll();
+        }
+        return true;
+    }
+
+    private Attempt removeAttempt(Task task, int attempt) {
+        Attempt removed = task.running.remove(attempt);
+        if (task.running.isEmpty()) {
+            active.remove(task);
+        }
+        return removed;
+    }
+
+    /**
+     * Gives the task back to the queue unless it is done or still running elsewhere
+     */
+    synchronized void fail(int taskId, int attempt) {
+        Task task = tasks.get(taskId);
+        removeAttempt(task, attempt);
+        requeueIfLost(task);
+    }
+
+    /**
+     * Gives the tasks of the completed container back to the queue
+     */
+    synchronized void containerCompleted(String containerId) {
+        for (Task task : new ArrayList<>(active)) {
+            Iterator<Attempt> attempts = task.running.values().iterator();
+            boolean lost = false;
+            while (attempts.hasNext()) {
+                if (attempts.next().containerId.equals(containerId)) {
+                    attempts.remove();
+                    lost = true;
+                }
+            }
+            if (lost) {
+                if (task.running.isEmpty()) {
+                    active.remove(task);
+                }
+                requeueIfLost(task);
+            }
+        }
+    }
+
+    private void requeueIfLost(Task task) {
+        if (!task.done && !task.committing && task.running.isEmpty()) {
+            pending.add(task.id);
+        }
+    }
+
+    /**
+     * @return time of the first request of the container, {@code null} if it has not asked for a task
+     */
+    synchronized Long getFirstRequestTime(String containerId) {
+        return firstRequests.get(containerId);
+    }
+
+    /**
+     * @return job the task belongs to
+     */
+    synchronized SplitJob getJob(int taskId) {
+        return tasks.get(taskId).job;
+    }
+
+
+    /**
+     * Moves the partial counts of the winning attempt to the result directory of the job
+     */
+    interface Publisher {
+
+        void publish(Path output, Path part) throws IOException;
+    }
+
+
+    private static class Task {
+
+        final int id;
+        final SplitJob job;
+        final FileSplit split;
+        final String[] hosts;
+
+        boolean done;
+        // Whether the partial counts of the winning attempt are being published
+        boolean committing;
+        int attempts;
+        final Map<Integer, Attempt> running = new HashMap<>();
+
+        Task(int id, SplitJob job, FileSplit split, String[] hosts) {
+            this.id = id;
+            this.job = job;
+            this.split = split;
+            this.hosts = hosts;
+        }
+    }
+
+
+    private static class Attempt {
+
+        final String containerId;
+        final long startTime;
+        // Bytes processed according to the last report
+        long bytes;
+
+        Attempt(String containerId, long startTime) {
+            this.containerId = containerId;
+            this.startTime = startTime;
+        }
+
+        /**
+         * @return bytes processed per millisecond
+         */
+        double rate(long now) {
+            return (double) bytes / Math.max(1, now - startTime);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.epam.yarn.master;
+
+import com.epam.yarn.split.SplitQueueProtocol;
+import com.epam.yarn.split.SplitTask;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.epam.yarn.split.SplitQueueProtocol.*;
+
+/**
+ * Serves the {@link SplitQueue} to the containers over HTTP, see {@link SplitQueueProtocol}.
+ * <p>
+ * Committing an attempt renames its partial counts to {@code part-<task id>} of the result directory
+ * of its job, the partial counts of the attempts which lost are deleted.
+ */
+class SplitQueueServer {
+
+    private static final Log LOG = LogFactory.getLog(SplitQueueServer.class);
+
+    private static final int THREADS = 4;
+
+    private final SplitQueue queue;
+    private final FileSystem fs;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    SplitQueueServer(SplitQueue queue, FileSystem fs) throws IOException {
+        this.queue = queue;
+        this.fs = fs;
+
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext(NEXT_PATH, exchange -> serve(exchange, this::next));
+        server.createContext(PROGRESS_PATH, exchange -> serve(exchange, this::progress));
+        server.createContext(COMMIT_PATH, exchange -> serve(exchange, this::commit));
+        server.createContext(FAIL_PATH, exchange -> serve(exchange, this::fail));
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = handler.handle(params(exchange));
+        } catch (Exception e) {
+            LOG.error("Failed to serve " + exchange.getRequestURI(), e);
+            status = 500;
+            body = e.toString();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String next(Map<String, String> params) {
+        SplitTask task = queue.next(params.get(CONTAINER_PARAM), params.get(HOST_PARAM));
+        if (task == null) {
+            return queue.isDrained() ? DONE_RESPONSE : WAIT_RESPONSE;
+        }
+        LOG.info("Task " + task.getId() + " attempt " + task.getAttempt() + " is given to "
+                + params.get(CONTAINER_PARAM));
+        return TASK_RESPONSE + ' ' + task.encode();
+    }
+
+    private String progress(Map<String, String> params) {
+        int taskId = Integer.parseInt(params.get(TASK_PARAM));
+        int attempt = Integer.parseInt(params.get(ATTEMPT_PARAM));
+        if (queue.progress(taskId, attempt, Long.parseLong(params.get(BYTES_PARAM)))) {
+            return CONTINUE_RESPONSE;
+        }
+        LOG.info("Task " + taskId + " attempt " + attempt + " is aborted");
+        return ABORT_RESPONSE;
+    }
+
+    private String commit(Map<String, String> params) throws IOException {
+        int taskId = Integer.parseInt(params.get(TASK_PARAM));
+        int attempt = Integer.parseInt(params.get(ATTEMPT_PARAM));
+        Path output = queue.getOutput(taskId, attempt);
+
+        // The queue is the only judge of the winner, so renames never race, yet it is not locked during the rename
+        boolean committed = queue.commit(taskId, attempt, Long.parseLong(params.get(BYTES_PARAM)), (from, to) -> {
+            if (!fs.rename(from, to)) {
+                throw new IOException("Could not rename " + from + " to " + to);
+            }
+        });
+        if (committed) {
+            SplitJob job = queue.getJob(taskId);
+            LOG.info("Task " + taskId + " attempt " + attempt + " is committed, completed tasks of job " + job.getId()
+                    + ":" + job.getCompletedTasks() + " of " + job.getTotalTasks());
+        } else {
+            fs.delete(output, false);
+            LOG.info("Task " + taskId + " attempt " + attempt + " is discarded, another attempt of the task is committed");
+        }
+        return committed ? COMMITTED_RESPONSE : DISCARDED_RESPONSE;
+    }
+
+    private String fail(Map<String, String> params) {
+        int taskId = Integer.parseInt(params.get(TASK_PARAM));
+        int attempt = Integer.parseInt(params.get(ATTEMPT_PARAM));
+        LOG.info("Task " + taskId + " attempt " + attempt + " failed");
+        queue.fail(taskId, attempt);
+        return DONE_RESPONSE;
+    }
+
+    static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                int eq = param.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8.name()),
+                            URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8.name()));
+                }
+            }
+        }
+        return params;
+    }
+
+
+    private interface Handler {
+
+        /**
+         * @return body of the response
+         */
+        String handle(Map<String, String> params) throws IOException;
+    }
+}
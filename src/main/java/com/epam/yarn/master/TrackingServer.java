@@ -0,0 +1,176 @@
+package com.epam.yarn.master;
+
+import com.epam.yarn.TrackingProtocol;
+import com.epam.yarn.query.QuerySpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.epam.yarn.Constants.TOP_HOTELS;
+import static com.epam.yarn.TrackingProtocol.*;
+
+/**
+ * Serves the tracking URL of the application master, see {@link TrackingProtocol}.
+ * <p>
+ * Clients wait for the progress of the split queue here instead of polling the ResourceManager.
+ * A long lived master also accepts the analyses of its session, every analysis is a {@link SplitJob}
+ * processed by the containers the session holds.
+ */
+class TrackingServer {
+
+    private static final Log LOG = LogFactory.getLog(TrackingServer.class);
+
+    // Interval between the progress lines streamed to the client
+    private static final long PROGRESS_INTERVAL_MS = 1000;
+    // Longest wait of a status request
+    private static final long MAX_WAIT_MS = 60_000;
+
+    private final SplitQueue queue;
+    private final Session session;
+    private final HttpServer server;
+    // Status requests and queries occupy their threads until they are answered
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * @param session runs the queries, {@code null} unless the master runs a session
+     */
+    TrackingServer(SplitQueue queue, Session session) throws IOException {
+        this.queue = queue;
+        this.session = session;
+
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext(STATUS_PATH, this::status);
+        if (session != null) {
+            server.createContext(QUERY_PATH, this::query);
+            server.createContext(STOP_PATH, this::stop);
+        }
+        server.setExecutor(executor);
+    }
+
+    void start() {
+        server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void status(HttpExchange exchange) throws IOException {
+        Map<String, String> params = SplitQueueServer.params(exchange);
+
+        String status;
+        try {
+            int completed = params.containsKey(COMPLETED_PARAM) ? Integer.parseInt(params.get(COMPLETED_PARAM)) : -1;
+            long waitMs = params.containsKey(WAIT_MS_PARAM)
+                    ? Math.min(MAX_WAIT_MS, Long.parseLong(params.get(WAIT_MS_PARAM))) : 0;
+            if (waitMs < 0) {
+                throw new IllegalArgumentException("Illegal " + WAIT_MS_PARAM + ": " + waitMs);
+            }
+            queue.awaitProgress(completed, waitMs);
+            status = (queue.isDrained() ? DONE_RESPONSE : PROGRESS_RESPONSE)
+                    + ' ' + queue.getCompletedTasks() + ' ' + queue.getTotalTasks();
+        } catch (IllegalArgumentException e) {
+            // Also a malformed number
+            status = FAILED_RESPONSE + ' ' + e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = FAILED_RESPONSE + " Application master is stopping";
+        }
+        respond(exchange, status);
+    }
+
+    private void query(HttpExchange exchange) throws IOException {
+        Map<String, String> params = SplitQueueServer.params(exchange);
+        String input = params.get(INPUT_PARAM);
+
+        exchange.sendResponseHeaders(200, 0);
+        try (PrintStream out = new PrintStream(exchange.getResponseBody(), true, StandardCharsets.UTF_8.name())) {
+            try {
+                int topK = params.containsKey(TOP_K_PARAM) ? Integer.parseInt(params.get(TOP_K_PARAM)) : TOP_HOTELS;
+                QuerySpec query = params.containsKey(QUERY_PARAM) ? QuerySpec.parse(params.get(QUERY_PARAM)) : null;
+                SplitJob job = session.submit(input, query);
+                LOG.info("Job " + job.getId() + " analyzes " + input
+                        + (job.getQuery() != null ? " with query " + job.getQuery() : ""));
+                while (true) {
+                    out.println(PROGRESS_RESPONSE + ' ' + job.getCompletedTasks() + ' ' + job.getTotalTasks());
+                    try {
+                        job.getDone().get(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        // Report the progress again
+                    }
+                }
+
+                List<String> top = session.result(job, topK);
+                out.println(RESULT_RESPONSE);
+                top.forEach(out::println);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                LOG.error("Analysis of " + input + " failed", cause);
+                out.println(FAILED_RESPONSE + ' ' + cause);
+            }
+        }
+    }
+
+    private void stop(HttpExchange exchange) throws IOException {
+        LOG.info("Stopping the session");
+        session.stop();
+        respond(exchange, STOPPING_RESPONSE);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+
+    /**
+     * Runs the analyses on the containers of the application master
+     */
+    interface Session {
+
+        /**
+         * Adds the tasks of the input to the split queue
+         *
+         * @param query query the tasks run, null for the one the session was started with
+         */
+        SplitJob submit(String input, QuerySpec query) throws IOException;
+
+        /**
+         * Merges the partial counts of the complete job
+         *
+         * @return k most booked hotels, or the top groups of the query of the job
+         */
+        List<String> result(SplitJob job, int topK) throws IOException;
+
+        /**
+         * Releases the containers once the running jobs are complete
+         */
+        void stop();
+    }
+}
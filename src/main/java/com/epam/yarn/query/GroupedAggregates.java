@@ -0,0 +1,251 @@
+package com.epam.yarn.query;
+
+import com.epam.yarn.aggregate.LongCountMap;
+import com.epam.yarn.aggregate.TopK;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregates of a {@link QuerySpec} per group, where a group is identified by a key packing its grouped values.
+ * <p>
+ * Every group gets a dense index the first time its key is seen, the aggregates are kept in a {@code long}
+ * array per aggregate indexed by the group, so updating a known group allocates nothing. A distinct aggregate
+ * also keeps the set of its (group, value) pairs packed into single {@code long} keys.
+ * <p>
+ * Containers write their partial aggregates with {@link #write(FileSystem, Path)} and the application master
+ * merges them, distinct values are merged as the sets of the pairs.
+ */
+public class GroupedAggregates {
+
+    private static final int INITIAL_GROUPS = 1024;
+
+    private final QuerySpec query;
+    private final QuerySpec.Function[] functions;
+    // Group of every key plus 1, as a missing key has the count of 0
+    private final LongCountMap key2group = new LongCountMap();
+    private long[] keys = new long[INITIAL_GROUPS];
+    // Value of every aggregate per group
+    private final long[][] values;
+    // Pairs of the group and the value counted by every distinct aggregate, null for the other aggregates
+    private final LongCountMap[] distinctPairs;
+    private int size;
+
+    public GroupedAggregates(QuerySpec query) {
+        this.query = query;
+        int aggregates = query.getAggregates().size();
+        functions = new QuerySpec.Function[aggregates];
+        values = new long[aggregates][INITIAL_GROUPS];
+        distinctPairs = new LongCountMap[aggregates];
+        for (int aggregate = 0; aggregate < aggregates; aggregate++) {
+            functions[aggregate] = query.getAggregates().get(aggregate).getFunction();
+            if (functions[aggregate] == QuerySpec.Function.DISTINCT) {
+                distinctPairs[aggregate] = new LongCountMap();
+            }
+        }
+    }
+
+    public QuerySpec getQuery() {
+        return query;
+    }
+
+    /**
+     * @return index of the group with the key, a new group is added for an unknown key
+     */
+    public int group(long key) {
+        int group = (int) key2group.get(key) - 1;
+        if (group >= 0) {
+            return group;
+        }
+
+        group = size++;
+        if (group == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * group);
+            for (int aggregate = 0; aggregate < values.length; aggregate++) {
+                values[aggregate] = Arrays.copyOf(values[aggregate], 2 * group);
+            }
+        }
+        keys[group] = key;
+        for (long[] aggregateValues : values) {
+            aggregateValues[group] = 0;
+        }
+        key2group.add(key, group + 1);
+        return group;
+    }
+
+    /**
+     * Adds a value to an aggregate of the group
+     *
+     * @param value number of the rows for count, the value of the aggregated cell otherwise
+     */
+    public void add(int aggregate, int group, long value) {
+        switch (functions[aggregate]) {
+            case COUNT:
+            case SUM:
+                values[aggregate][group] += value;
+                break;
+            case DISTINCT:
+                long pair = (long) group << Integer.SIZE | (value & 0xffffffffL);
+                if (distinctPairs[aggregate].get(pair) == 0) {
+                    distinctPairs[aggregate].increment(pair);
+                    values[aggregate][group]++;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown function " + functions[aggregate]);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the other aggregates are of another query
+     */
+    public void merge(GroupedAggregates other) {
+        if (!query.equals(other.query)) {
+            throw new IllegalArgumentException("Aggregates of query " + other.query + " cannot be merged into " + query);
+        }
+        int[] groups = new int[other.size];
+        for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+            groups[otherGroup] = group(other.keys[otherGroup]);
+        }
+        for (int aggregate = 0; aggregate < functions.length; aggregate++) {
+            if (functions[aggregate] == QuerySpec.Function.DISTINCT) {
+                int distinct = aggregate;
+                other.distinctPairs[aggregate].forEach(
+                        (pair, count) -> add(distinct, groups[(int) (pair >>> Integer.SIZE)], (int) pair));
+            } else {
+                for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+                    add(aggregate, groups[otherGroup], other.values[aggregate][otherGroup]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of the groups
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the groups keeping the allocated capacity
+     */
+    public void clear() {
+        key2group.clear();
+        for (LongCountMap pairs : distinctPairs) {
+            if (pairs != null) {
+                pairs.clear();
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * @return k groups with the highest first aggregate, formatted as the grouped values followed by the aggregates,
+     * for instance {@code channel=9 count=12 distinct(user_id)=7}. Groups with the same first aggregate are ordered
+     * by their keys
+     */
+    public List<String> top(int k) {
+        TopK topK = new TopK(k);
+        for (int group = 0; group < size; group++) {
+            topK.offer(keys[group], values[0][group]);
+        }
+        List<String> top = new ArrayList<>(topK.size());
+        topK.forEach((key, first) -> top.add(format((int) key2group.get(key) - 1)));
+        return top;
+    }
+
+    private String format(int group) {
+        StringBuilder line = new StringBuilder();
+        List<String> groupBy = query.getGroupBy();
+        int bits = query.getGroupKeyBits();
+        for (int i = 0; i < groupBy.size(); i++) {
+            long value = keys[group] >>> (bits * (groupBy.size() - 1 - i)) & ((1L << bits) - 1);
+            line.append(groupBy.get(i)).append('=').append(value).append(' ');
+        }
+        for (int aggregate = 0; aggregate < functions.length; aggregate++) {
+            line.append(query.getAggregates().get(aggregate)).append('=').append(values[aggregate][group])
+                    .append(aggregate + 1 < functions.length ? " " : "");
+        }
+        return line.toString();
+    }
+
+    /**
+     * Serializes the aggregates as the query followed by the number of groups and the key and the aggregates
+     * of every group, a distinct aggregate is written as its pairs of the group index and the value after
+     * all the groups. Numbers are written as variable length integers.
+     */
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeString(out, query.toString());
+        WritableUtils.writeVInt(out, size);
+        for (int group = 0; group < size; group++) {
+            WritableUtils.writeVLong(out, keys[group]);
+            for (int aggregate = 0; aggregate < functions.length; aggregate++) {
+                if (functions[aggregate] != QuerySpec.Function.DISTINCT) {
+                    WritableUtils.writeVLong(out, values[aggregate][group]);
+                }
+            }
+        }
+        for (LongCountMap pairs : distinctPairs) {
+            if (pairs != null) {
+                WritableUtils.writeVInt(out, pairs.size());
+                LongCountMap.Cursor cursor = pairs.cursor();
+                while (cursor.next()) {
+                    WritableUtils.writeVInt(out, (int) (cursor.key() >>> Integer.SIZE));
+                    WritableUtils.writeVInt(out, (int) cursor.key());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the aggregates serialized with {@link #write(DataOutput)}
+     *
+     * @throws IOException if the aggregates are of another query
+     */
+    public void readFields(DataInput in) throws IOException {
+        String written = WritableUtils.readString(in);
+        if (!query.toString().equals(written)) {
+            throw new IOException("Aggregates of query " + written + " cannot be merged into " + query);
+        }
+        int[] groups = new int[WritableUtils.readVInt(in)];
+        for (int writtenGroup = 0; writtenGroup < groups.length; writtenGroup++) {
+            groups[writtenGroup] = group(WritableUtils.readVLong(in));
+            for (int aggregate = 0; aggregate < functions.length; aggregate++) {
+                if (functions[aggregate] != QuerySpec.Function.DISTINCT) {
+                    add(aggregate, groups[writtenGroup], WritableUtils.readVLong(in));
+                }
+            }
+        }
+        for (int aggregate = 0; aggregate < functions.length; aggregate++) {
+            if (functions[aggregate] == QuerySpec.Function.DISTINCT) {
+                int pairs = WritableUtils.readVInt(in);
+                for (int i = 0; i < pairs; i++) {
+                    int group = groups[WritableUtils.readVInt(in)];
+                    add(aggregate, group, WritableUtils.readVInt(in));
+                }
+            }
+        }
+    }
+
+    public void write(FileSystem fs, Path path) throws IOException {
+        try (FSDataOutputStream out = fs.create(path, true)) {
+            write(out);
+        }
+    }
+
+    public void readFields(FileSystem fs, Path path) throws IOException {
+        try (FSDataInputStream in = fs.open(path)) {
+            readFields(in);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.epam.yarn.query;
+
+import com.epam.yarn.container.BookingColumns;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregation query over the integer columns of the bookings, see {@link BookingColumns#INT_COLUMNS}.
+ * <p>
+ * A query is given as clauses separated by {@code ;}, every clause is optional, whitespace is ignored:
+ * <pre>
+ * group_by=hotel_continent,hotel_country,hotel_market; where=is_booking=1,srch_adults_cnt=2; aggregate=count; top_k=3
+ * </pre>
+ * <ul>
+ * <li>{@code group_by} - up to {@value #MAX_GROUP_BY} columns, all the rows form one group without it</li>
+ * <li>{@code where} - conditions all of which a row must meet, {@code <column><operator><int>} with the operators
+ * {@code = != < <= > >=}. Conditions are evaluated in the given order, the most selective one should go first</li>
+ * <li>{@code aggregate} - {@code count}, {@code sum(<column>)} or {@code distinct(<column>)}, count by default.
+ * Groups are ranked by the first aggregate</li>
+ * <li>{@code top_k} - number of the reported groups, the analysis default without it</li>
+ * </ul>
+ * Rows with an empty cell in any of the grouped or aggregated columns are skipped.
+ */
+public class QuerySpec {
+
+    public static final int MAX_GROUP_BY = 3;
+
+    private static final String GROUP_BY = "group_by";
+    private static final String WHERE = "where";
+    private static final String AGGREGATE = "aggregate";
+    private static final String TOP_K = "top_k";
+
+    private static final Pattern CONDITION = Pattern.compile("([a-z_]+)(!=|<=|>=|=|<|>)([-+]?\\d+)");
+    private static final Pattern FUNCTION = Pattern.compile("([a-z]+)(?:\\(([a-z_]+)\\))?");
+
+    private final List<String> groupBy;
+    private final List<Condition> where;
+    private final List<Aggregate> aggregates;
+    private final int topK;
+
+    private QuerySpec(List<String> groupBy, List<Condition> where, List<Aggregate> aggregates, int topK) {
+        this.groupBy = Collections.unmodifiableList(groupBy);
+        this.where = Collections.unmodifiableList(where);
+        this.aggregates = Collections.unmodifiableList(aggregates);
+        this.topK = topK;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the query is malformed or refers to a column which is not an integer one
+     */
+    public static QuerySpec parse(String spec) {
+        List<String> groupBy = new ArrayList<>();
+        List<Condition> where = new ArrayList<>();
+        List<Aggregate> aggregates = new ArrayList<>();
+        int topK = 0;
+
+        Set<String> clauses = new LinkedHashSet<>();
+        for (String clause : spec.replaceAll("\\s", "").split(";")) {
+            if (clause.isEmpty()) {
+                continue;
+            }
+            int separator = clause.indexOf('=');
+            String name = separator < 0 ? clause : clause.substring(0, separator);
+            String value = separator < 0 ? "" : clause.substring(separator + 1);
+            if (!clauses.add(name)) {
+                throw new IllegalArgumentException("Clause " + name + " is given twice in query " + spec);
+            }
+            switch (name) {
+                case GROUP_BY:
+                    for (String column : items(value, name)) {
+                        groupBy.add(intColumn(column));
+                    }
+                    if (groupBy.size() > MAX_GROUP_BY) {
+                        throw new IllegalArgumentException("Query may group by up to " + MAX_GROUP_BY + " columns: " + value);
+                    }
+                    break;
+                case WHERE:
+                    for (String condition : items(value, name)) {
+                        where.add(Condition.parse(condition));
+                    }
+                    break;
+                case AGGREGATE:
+                    for (String aggregate : items(value, name)) {
+                        aggregates.add(Aggregate.parse(aggregate));
+                    }
+                    break;
+                case TOP_K:
+                    topK = Integer.parseInt(value);
+                    if (topK < 1) {
+                        throw new IllegalArgumentException("Illegal top_k of query: " + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown clause " + name + " of query " + spec
+                            + ", expected " + GROUP_BY + ", " + WHERE + ", " + AGGREGATE + " or " + TOP_K);
+            }
+        }
+        if (aggregates.isEmpty()) {
+            aggregates.add(new Aggregate(Function.COUNT, null));
+        }
+        return new QuerySpec(groupBy, where, aggregates, topK);
+    }
+
+    private static String[] items(String value, String clause) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Clause " + clause + " of query is empty");
+        }
+        return value.split(",");
+    }
+
+    private static String intColumn(String column) {
+        if (!BookingColumns.INT_COLUMNS.contains(column)) {
+            throw new IllegalArgumentException("Column " + column + " is not an integer column of the bookings,"
+                    + " expected one of " + BookingColumns.INT_COLUMNS);
+        }
+        return column;
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    public List<Condition> getWhere() {
+        return where;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return number of the reported groups, 0 if the query does not set it
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * @return columns the query reads, every one once: the filtered ones first, then the grouped and the aggregated ones
+     */
+    public String[] getColumns() {
+        Set<String> columns = new LinkedHashSet<>();
+        where.forEach(condition -> columns.add(condition.getColumn()));
+        columns.addAll(groupBy);
+        aggregates.stream().filter(aggregate -> aggregate.getColumn() != null)
+                .forEach(aggregate -> columns.add(aggregate.getColumn()));
+        return columns.toArray(new String[0]);
+    }
+
+    /**
+     * @return bits of a grouped value in a group key, grouped values must be in range [0, 2^bits)
+     */
+    public int getGroupKeyBits() {
+        return groupBy.isEmpty() ? 0 : Math.min(Integer.SIZE - 1, (Long.SIZE - 1) / groupBy.size());
+    }
+
+    /**
+     * @return the query in the canonical form, {@link #parse(String)} gives an equal query back
+     */
+    @Override
+    public String toString() {
+        List<String> clauses = new ArrayList<>();
+        if (!groupBy.isEmpty()) {
+            clauses.add(GROUP_BY + "=" + String.join(",", groupBy));
+        }
+        if (!where.isEmpty()) {
+            clauses.add(WHERE + "=" + where.stream().map(Condition::toString).collect(Collectors.joining(",")));
+        }
+        clauses.add(AGGREGATE + "=" + aggregates.stream().map(Aggregate::toString).collect(Collectors.joining(",")));
+        if (topK > 0) {
+            clauses.add(TOP_K + "=" + topK);
+        }
+        return String.join(";", clauses);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof QuerySpec && toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    public enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        static Operator of(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator " + symbol);
+        }
+    }
+
+    public enum Function {
+        COUNT, SUM, DISTINCT
+    }
+
+    @Value
+    public static class Condition {
+
+        private final String column;
+        private final Operator operator;
+        private final int value;
+
+        static Condition parse(String condition) {
+            Matcher matcher = CONDITION.matcher(condition);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Illegal condition " + condition
+                        + ", expected <column><operator><int> with one of the operators = != < <= > >=");
+            }
+            return new Condition(intColumn(matcher.group(1)), Operator.of(matcher.group(2)),
+                    Integer.parseInt(matcher.group(3)));
+        }
+
+        @Override
+        public String toString() {
+            return column + operator.getSymbol() + value;
+        }
+    }
+
+    @Value
+    public static class Aggregate {
+
+        private final Function function;
+        // Aggregated column, null for the count of the rows
+        private final String column;
+
+        static Aggregate parse(String aggregate) {
+            Matcher matcher = FUNCTION.matcher(aggregate);
+            Function function = null;
+            if (matcher.matches()) {
+                for (Function candidate : Function.values()) {
+                    if (candidate.name().equalsIgnoreCase(matcher.group(1))) {
+                        function = candidate;
+                    }
+                }
+            }
+            if (function == null || (function == Function.COUNT) != (matcher.group(2) == null)) {
+                throw new IllegalArgumentException("Illegal aggregate " + aggregate
+                        + ", expected count, sum(<column>) or distinct(<column>)");
+            }
+            return new Aggregate(function, matcher.group(2) != null ? intColumn(matcher.group(2)) : null);
+        }
+
+        @Override
+        public String toString() {
+            // Canonical form compared across the JVMs, so it must not depend on their locales
+            String name = function.name().toLowerCase(Locale.ROOT);
+            return column == null ? name : name + "(" + column + ")";
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.epam.yarn.split;
+
+import lombok.Value;
+import org.apache.hadoop.fs.Path;
+
+import java.net.URI;
+
+/**
+ * Byte range of an input file processed by a single container.
+ * Lines are owned by the split in which they start, see {@link SplitLineInputStream}.
+ */
+@Value
+public class FileSplit {
+
+    private static final char SEPARATOR = ':';
+
+    private final Path path;
+    private final long start;
+    private final long length;
+
+    public long getEnd() {
+        return start + length;
+    }
+
+    /**
+     * Encodes the split into a single command line token: {@code <start>:<length>:<uri>}
+     */
+    public String encode() {
+        return String.valueOf(start) + SEPARATOR + length + SEPARATOR + path.toUri();
+    }
+
+    /**
+     * Reverse operation for {@link #encode()}
+     */
+    public static FileSplit decode(String encoded) {
+        String[] parts = encoded.split(String.valueOf(SEPARATOR), 3);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Illegal split: " + encoded);
+        }
+        return new FileSplit(new Path(URI.create(parts[2])), Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+    }
+}
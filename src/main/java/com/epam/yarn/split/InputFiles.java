@@ -0,0 +1,101 @@
+package com.epam.yarn.split;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens input files which may be compressed by any of the codecs configured in
+ * {@code io.compression.codecs}. The codec is chosen by the file extension.
+ * Decompressors are borrowed from the {@link CodecPool} and returned when the stream is closed.
+ */
+public final class InputFiles {
+
+    private InputFiles() {
+    }
+
+    /**
+     * @return codec of the file, {@code null} if the file is not compressed
+     */
+    public static CompressionCodec getCodec(Configuration conf, Path file) {
+        return new CompressionCodecFactory(conf).getCodec(file);
+    }
+
+    /**
+     * @return whether several containers can read the file at the same time
+     */
+    public static boolean isSplittable(Configuration conf, Path file) {
+        CompressionCodec codec = getCodec(conf, file);
+        return codec == null || codec instanceof SplittableCompressionCodec;
+    }
+
+    /**
+     * @return decompressed content of the whole file
+     */
+    public static InputStream open(Configuration conf, FileSystem fs, Path file) throws IOException {
+        FSDataInputStream in = fs.open(file);
+        CompressionCodec codec = getCodec(conf, file);
+        if (codec == null) {
+            return in;
+        }
+        Decompressor decompressor = CodecPool.getDecompressor(codec);
+        return pooled(codec.createInputStream(in, decompressor), decompressor);
+    }
+
+    /**
+     * @return decompressed lines of the split, see {@link SplitLineInputStream}
+     * @throws IllegalArgumentException if the file is compressed with a non splittable codec
+     *                                  and the split does not cover the whole file
+     */
+    public static InputStream openSplit(Configuration conf, FileSystem fs, FileSplit split) throws IOException {
+        CompressionCodec codec = getCodec(conf, split.getPath());
+        if (codec == null) {
+            return new SplitLineInputStream(fs.open(split.getPath()), split);
+        }
+
+        if (!(codec instanceof SplittableCompressionCodec)) {
+            if (split.getStart() != 0 || split.getLength() < fs.getFileStatus(split.getPath()).getLen()) {
+                throw new IllegalArgumentException(split.getPath() + " compressed by "
+                        + codec.getClass().getSimpleName() + " can not be split");
+            }
+            return open(conf, fs, split.getPath());
+        }
+
+        Decompressor decompressor = CodecPool.getDecompressor(codec);
+        SplitCompressionInputStream in = ((SplittableCompressionCodec) codec).createInputStream(
+                fs.open(split.getPath()), decompressor, split.getStart(), split.getEnd(),
+                SplittableCompressionCodec.READ_MODE.BYBLOCK);
+        return pooled(new SplitLineInputStream(in, split), decompressor);
+    }
+
+    private static InputStream pooled(InputStream in, Decompressor decompressor) {
+        return new FilterInputStream(in) {
+
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    CodecPool.returnDecompressor(decompressor);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,153 @@
+package com.epam.yarn.split;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Cuts input files into byte ranges for the analyzer containers.
+ */
+public final class InputSplitter {
+
+    // Same as FileInputFormat: files starting with '_' or '.' are metadata, checksums or caches
+    private static final PathFilter VISIBLE = path -> !path.getName().startsWith("_") && !path.getName().startsWith(".");
+
+    private InputSplitter() {
+    }
+
+    /**
+     * Resolves the input into files. The input may be a file, a directory, which is scanned recursively,
+     * or a glob matching any of them. Hidden files are skipped.
+     *
+     * @return non empty list of the input files
+     * @throws FileNotFoundException if the input matches no files
+     */
+    public static List<FileStatus> listFiles(FileSystem fs, Path input) throws IOException {
+        FileStatus[] matches = fs.globStatus(input, VISIBLE);
+        List<FileStatus> files = new ArrayList<>();
+        if (matches != null) {
+            for (FileStatus match : matches) {
+                if (!match.isDirectory()) {
+                    files.add(match);
+                    continue;
+                }
+                RemoteIterator<LocatedFileStatus> children = fs.listFiles(match.getPath(), true);
+                while (children.hasNext()) {
+                    LocatedFileStatus child = children.next();
+                    if (isVisible(match.getPath(), child.getPath())) {
+                        files.add(child);
+                    }
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new FileNotFoundException("Input " + input + " matches no files");
+        }
+        return files;
+    }
+
+    private static boolean isVisible(Path root, Path file) {
+        for (Path path = file; path != null && !path.equals(root); path = path.getParent()) {
+            if (!VISIBLE.accept(path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the files into about {@code maxSplits} ranges of equal size, every non empty file yields
+     * at least one split.
+     * Splits larger than a block are rounded up to whole blocks so that a container
+     * does not start reading in the middle of a block owned by another one.
+     * Files compressed by a non splittable codec are never split.
+     *
+     * @param conf      configuration of the compression codecs
+     * @param files     files to split
+     * @param maxSplits desired number of splits, usually the number of containers
+     * @return splits covering all the files
+     */
+    public static List<FileSplit> split(Configuration conf, List<FileStatus> files, int maxSplits) {
+        long totalLength = 0;
+        for (FileStatus file : files) {
+            totalLength += file.getLen();
+        }
+        long splitSize = Math.max(1, (totalLength + maxSplits - 1) / maxSplits);
+
+        List<FileSplit> splits = new ArrayList<>();
+        for (FileStatus file : files) {
+            splits.addAll(split(conf, file, splitSize));
+        }
+        return splits;
+    }
+
+    private static List<FileSplit> split(Configuration conf, FileStatus file, long splitSize) {
+        long length = file.getLen();
+        long blockSize = file.getBlockSize();
+
+        List<FileSplit> splits = new ArrayList<>();
+        if (length == 0) {
+            return splits;
+        }
+        if (!InputFiles.isSplittable(conf, file.getPath())) {
+            splits.add(new FileSplit(file.getPath(), 0, length));
+            return splits;
+        }
+
+        if (blockSize > 0 && splitSize > blockSize) {
+            splitSize = (splitSize + blockSize - 1) / blockSize * blockSize;
+        }
+
+        long start = 0;
+        do {
+            long splitLength = Math.min(splitSize, length - start);
+            splits.add(new FileSplit(file.getPath(), start, splitLength));
+            start += splitLength;
+        } while (start < length);
+
+        return splits;
+    }
+
+    /**
+     * Distributes the splits between at most {@code containers} containers, so that they read about
+     * the same number of bytes. The largest splits are placed first, each into the least loaded container.
+     *
+     * @return non empty groups of splits, one per container used, no groups without splits
+     */
+    public static List<List<FileSplit>> assign(List<FileSplit> splits, int containers) {
+        if (splits.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<FileSplit> largestFirst = new ArrayList<>(splits);
+        largestFirst.sort(Comparator.comparingLong(FileSplit::getLength).reversed());
+
+        int groupCount = Math.min(containers, splits.size());
+        List<List<FileSplit>> groups = new ArrayList<>(groupCount);
+        long[] groupLengths = new long[groupCount];
+        PriorityQueue<Integer> leastLoaded = new PriorityQueue<>(groupCount,
+                Comparator.<Integer>comparingLong(group -> groupLengths[group]).thenComparingInt(group -> group));
+        for (int group = 0; group < groupCount; group++) {
+            groups.add(new ArrayList<>());
+            leastLoaded.add(group);
+        }
+
+        for (FileSplit split : largestFirst) {
+            int group = leastLoaded.poll();
+            groups.get(group).add(split);
+            groupLengths[group] += split.getLength();
+            leastLoaded.add(group);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,174 @@
+package com.epam.yarn.split;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Exposes only the lines of a {@link FileSplit}.
+ * <p>
+ * A line belongs to the split in which it starts: every split except the first one skips
+ * the (possibly partial) line at its start, and every split reads past its end until the
+ * line which covers the end position is terminated. Adjacent splits therefore see every
+ * line exactly once.
+ * <p>
+ * Splits of compressed files are positioned by the compressed stream, which advances its position
+ * only at the compressed block boundaries. A line then belongs to the split in which its compressed
+ * block starts, the same as in Hadoop's {@code LineRecordReader}.
+ */
+public class SplitLineInputStream extends InputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 4096;
+
+    private final InputStream in;
+    private final Seekable position;
+    private final long end;
+    // Whether the position is the exact position of the next byte in the file
+    private final boolean exact;
+
+    private int lastByte = -1;
+    private boolean done;
+    // Compressed reads land here first, see readIn
+    private byte[] scratch;
+    // Reused by read(), which readers decoding the characters call for every byte
+    private final byte[] single = new byte[1];
+
+    public SplitLineInputStream(FSDataInputStream in, FileSplit split) throws IOException {
+        this(in, in, split.getStart(), split.getEnd(), true);
+    }
+
+    /**
+     * @param in    stream created with {@code READ_MODE.BYBLOCK} for the split
+     * @param split split of the compressed file
+     */
+    public SplitLineInputStream(SplitCompressionInputStream in, FileSplit split) throws IOException {
+        this(in, in, split.getStart(), in.getAdjustedEnd(), false);
+    }
+
+    private SplitLineInputStream(InputStream in, Seekable position, long start, long end, boolean exact)
+            throws IOException {
+        this.in = in;
+        this.position = position;
+        this.end = end;
+        this.exact = exact;
+
+        if (exact) {
+            position.seek(start);
+        }
+        if (start != 0) {
+            skipFirstLine();
+        }
+        // The skipped line may cover the whole split
+        if (position.getPos() > end) {
+            done = true;
+        }
+    }
+
+    private void skipFirstLine() throws IOException {
+        if (!exact) {
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b == -1) {
+                    done = true;
+                    return;
+                }
+            }
+            return;
+        }
+
+        byte[] buffer = new byte[SKIP_BUFFER_SIZE];
+        long pos = position.getPos();
+        while (true) {
+            int n = in.read(buffer);
+            if (n == -1) {
+                done = true;
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buffer[i] == '\n') {
+                    position.seek(pos + i + 1);
+                    return;
+                }
+            }
+            pos += n;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (done) {
+            return -1;
+        }
+
+        long pos = position.getPos();
+        if (pos <= end) {
+            // Everything up to and including the end position belongs to this split. A compressed stream returns
+            // the first byte of a block by itself and advances its position only then, so the boundary is checked
+            // at every block start, the same as LineRecordReader checking it at every line start
+            int n = readIn(b, off, exact ? (int) Math.min(len, end - pos + 1) : len);
+            if (n == -1) {
+                done = true;
+                return -1;
+            }
+            lastByte = b[off + n - 1];
+            if (position.getPos() > end && lastByte == '\n') {
+                done = true;
+            }
+            return n;
+        }
+
+        // Past the end - finish the line which covers the end position
+        if (lastByte == '\n') {
+            done = true;
+            return -1;
+        }
+        int n = readIn(b, off, len);
+        if (n == -1) {
+            done = true;
+            return -1;
+        }
+        for (int i = off; i < off + n; i++) {
+            if (b[i] == '\n') {
+                done = true;
+                return i - off + 1;
+            }
+        }
+        lastByte = b[off + n - 1];
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Hadoop 2.9 {@code BZip2CompressionInputStream} passes {@code off + 1} as the length of the read
+     * at the end of a block in {@code BYBLOCK} mode, which fails for large offsets,
+     * so compressed streams are read at offset 0 of a scratch buffer
+     */
+    private int readIn(byte[] b, int off, int len) throws IOException {
+        if (exact || off == 0) {
+            return in.read(b, off, len);
+        }
+        if (scratch == null || scratch.length < len) {
+            scratch = new byte[len];
+        }
+        int n = in.read(scratch, 0, len);
+        if (n > 0) {
+            System.arraycopy(scratch, 0, b, off, n);
+        }
+        return n;
+    }
+}
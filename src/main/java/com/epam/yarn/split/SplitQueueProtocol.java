@@ -0,0 +1,39 @@
+package com.epam.yarn.split;
+
+/**
+ * HTTP protocol between the split queue of the application master and the containers.
+ * <ul>
+ * <li>{@code GET /next?container=<id>&host=<host>} answers {@code task <encoded task>},
+ * {@code wait} if the container should ask again later or {@code done} if all the tasks are committed</li>
+ * <li>{@code POST /progress?task=<id>&attempt=<attempt>&bytes=<bytes>} reports the bytes of the split processed
+ * so far, answers {@code continue} or {@code abort} if the attempt is no longer needed</li>
+ * <li>{@code POST /commit?task=<id>&attempt=<attempt>&bytes=<bytes>} after the partial counts of the attempt
+ * are written, answers {@code committed} or {@code discarded} if another attempt of the task was committed first</li>
+ * <li>{@code POST /fail?task=<id>&attempt=<attempt>} gives the task back to the queue</li>
+ * </ul>
+ * See {@link SplitTask} for the encoding of the tasks.
+ */
+public final class SplitQueueProtocol {
+
+    public static final String NEXT_PATH = "/next";
+    public static final String PROGRESS_PATH = "/progress";
+    public static final String COMMIT_PATH = "/commit";
+    public static final String FAIL_PATH = "/fail";
+
+    public static final String CONTAINER_PARAM = "container";
+    public static final String HOST_PARAM = "host";
+    public static final String TASK_PARAM = "task";
+    public static final String ATTEMPT_PARAM = "attempt";
+    public static final String BYTES_PARAM = "bytes";
+
+    public static final String TASK_RESPONSE = "task";
+    public static final String WAIT_RESPONSE = "wait";
+    public static final String DONE_RESPONSE = "done";
+    public static final String CONTINUE_RESPONSE = "continue";
+    public static final String ABORT_RESPONSE = "abort";
+    public static final String COMMITTED_RESPONSE = "committed";
+    public static final String DISCARDED_RESPONSE = "discarded";
+
+    private SplitQueueProtocol() {
+    }
+}
@@ -0,0 +1,49 @@
+package com.epam.yarn.split;
+
+import com.epam.yarn.query.QuerySpec;
+import lombok.Value;
+import org.apache.hadoop.fs.Path;
+
+import java.net.URI;
+
+/**
+ * Attempt to process a split handed out by the split queue of the application master.
+ * Several attempts of the same task may run at once, the first committed one wins.
+ */
+@Value
+public class SplitTask {
+
+    private static final char SEPARATOR = ' ';
+    // Encoded in place of the query of a task which counts the bookings of couples per hotel
+    private static final String NO_QUERY = "-";
+
+    private final int id;
+    private final int attempt;
+    // File to write the partial counts of the attempt to
+    private final Path output;
+    // Query of the job of the task, null if the task counts the bookings of couples per hotel
+    private final QuerySpec query;
+    private final FileSplit split;
+
+    /**
+     * Encodes the task into a single line: {@code <id> <attempt> <output uri> <query or -> <encoded split>},
+     * the canonical form of a query has no whitespace
+     */
+    public String encode() {
+        return String.valueOf(id) + SEPARATOR + attempt + SEPARATOR + output.toUri()
+                + SEPARATOR + (query != null ? query.toString() : NO_QUERY) + SEPARATOR + split.encode();
+    }
+
+    /**
+     * Reverse operation for {@link #encode()}
+     */
+    public static SplitTask decode(String encoded) {
+        String[] parts = encoded.trim().split(String.valueOf(SEPARATOR), 5);
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Illegal task: " + encoded);
+        }
+        return new SplitTask(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                new Path(URI.create(parts[2])), NO_QUERY.equals(parts[3]) ? null : QuerySpec.parse(parts[3]),
+                FileSplit.decode(parts[4]));
+    }
+}
@@ -0,0 +1,78 @@
+package com.epam.yarn.aggregate;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that serialized counts merge like the counts themselves
+ */
+public class HotelCountsTest {
+
+    @Test
+    public void exactCountsSurviveSerialization() throws IOException {
+        HotelCounts counts = new HotelCounts();
+        count(new Random(1), counts, 10_000);
+
+        HotelCounts read = new HotelCounts();
+        read.readFields(serialize(counts));
+        assertEquals(counts.size(), read.size());
+        assertEquals(counts.top(20), read.top(20));
+    }
+
+    @Test
+    public void approximateCountsSurviveSerialization() throws IOException {
+        HotelCounts counts = new HotelCounts(30);
+        count(new Random(2), counts, 10_000);
+
+        HotelCounts read = new HotelCounts(30);
+        read.readFields(serialize(counts));
+        assertEquals(counts.top(30), read.top(30));
+        assertEquals(counts.getMaxMissingCount(), read.getMaxMissingCount());
+        assertEquals(counts.describeAccuracy(), read.describeAccuracy());
+    }
+
+    @Test
+    public void mergedCountsKeepBoundOfMissingHotels() throws IOException {
+        Random random = new Random(3);
+        HotelCounts small = new HotelCounts(10);
+        count(random, small, 10_000);
+        HotelCounts merged = new HotelCounts(100);
+        count(random, merged, 3);
+        merged.merge(small);
+        assertTrue(merged.getMaxMissingCount() >= small.getMaxMissingCount());
+
+        HotelCounts read = new HotelCounts(100);
+        read.readFields(serialize(merged));
+        assertEquals(merged.getMaxMissingCount(), read.getMaxMissingCount());
+        assertEquals(merged.top(100), read.top(100));
+    }
+
+    @Test(expected = IOException.class)
+    public void approximateCountsAreNotReadIntoExactOnes() throws IOException {
+        HotelCounts counts = new HotelCounts(10);
+        count(new Random(4), counts, 100);
+        new HotelCounts().readFields(serialize(counts));
+    }
+
+    private static void count(Random random, HotelCounts counts, int bookings) {
+        for (int i = 0; i < bookings; i++) {
+            int hotel = (int) (Math.pow(random.nextDouble(), 3) * 500);
+            counts.increment(hotel % 5, hotel % 50, hotel);
+        }
+    }
+
+    private static DataInputBuffer serialize(HotelCounts counts) throws IOException {
+        DataOutputBuffer out = new DataOutputBuffer();
+        counts.write(out);
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(out.getData(), out.getLength());
+        return in;
+    }
+}
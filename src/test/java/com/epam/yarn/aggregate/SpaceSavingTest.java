@@ -0,0 +1,149 @@
+package com.epam.yarn.aggregate;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Property checks of the bounds of {@link SpaceSaving} against exact counts of random skewed streams
+ */
+public class SpaceSavingTest {
+
+    private static final int[] CAPACITIES = {1, 2, 10, 50, 200};
+
+    @Test
+    public void countsOfStreamBoundTrueCounts() {
+        Random random = new Random(1);
+        for (int capacity : CAPACITIES) {
+            for (int distinct : new int[]{capacity / 2 + 1, capacity * 5, 10_000}) {
+                SpaceSaving sketch = new SpaceSaving(capacity);
+                Map<Long, Long> exact = new HashMap<>();
+                count(random, distinct, 20_000, sketch, exact);
+
+                assertBounds(sketch, exact);
+                for (int counter = 0; counter < sketch.size(); counter++) {
+                    assertTrue(sketch.error(counter) <= sketch.getTotal() / capacity);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mergedCountsBoundTrueCounts() {
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            SpaceSaving sketch = new SpaceSaving(CAPACITIES[random.nextInt(CAPACITIES.length)]);
+            SpaceSaving other = new SpaceSaving(CAPACITIES[random.nextInt(CAPACITIES.length)]);
+            Map<Long, Long> exact = new HashMap<>();
+            int distinct = 1 + random.nextInt(1000);
+            count(random, distinct, random.nextInt(5000), sketch, exact);
+            count(random, distinct, random.nextInt(5000), other, exact);
+
+            sketch.merge(other);
+            assertBounds(sketch, exact);
+        }
+    }
+
+    @Test
+    public void largerSketchKeepsBoundOfFullSmallerOne() {
+        Random random = new Random(3);
+        SpaceSaving sketch = new SpaceSaving(100);
+        SpaceSaving other = new SpaceSaving(10);
+        Map<Long, Long> exact = new HashMap<>();
+        count(random, 5, 100, sketch, exact);
+        count(random, 1000, 10_000, other, exact);
+        long otherMinCount = other.getMinCount();
+        assertTrue(otherMinCount > 0);
+
+        sketch.merge(other);
+        assertTrue(sketch.size() < sketch.getCapacity());
+        assertTrue(sketch.getMinCount() >= otherMinCount);
+        assertBounds(sketch, exact);
+
+        // Keys seen after the merge may have been counted by neither sketch before
+        count(random, 1000, 10_000, sketch, exact);
+        assertBounds(sketch, exact);
+    }
+
+    @Test
+    public void mergesOfMergedSketchesBoundTrueCounts() {
+        Random random = new Random(4);
+        for (int i = 0; i < 50; i++) {
+            Map<Long, Long> exact = new HashMap<>();
+            SpaceSaving merged = new SpaceSaving(CAPACITIES[random.nextInt(CAPACITIES.length)]);
+            for (int part = 0; part < 8; part++) {
+                SpaceSaving partial = new SpaceSaving(CAPACITIES[random.nextInt(CAPACITIES.length)]);
+                count(random, 500, random.nextInt(3000), partial, exact);
+                merged.merge(partial);
+                assertBounds(merged, exact);
+            }
+        }
+    }
+
+    @Test
+    public void restoredSketchMergesLikeOriginal() {
+        Random random = new Random(5);
+        SpaceSaving sketch = new SpaceSaving(50);
+        count(random, 1000, 10_000, sketch, new HashMap<>());
+
+        SpaceSaving restored = new SpaceSaving(sketch.getCapacity());
+        restored.addTotal(sketch.getTotal());
+        restored.restoreMinCount(sketch.getMinCount());
+        for (int counter = 0; counter < sketch.size(); counter++) {
+            restored.restore(sketch.key(counter), sketch.count(counter), sketch.error(counter));
+        }
+
+        assertEquals(sketch.size(), restored.size());
+        assertEquals(sketch.getTotal(), restored.getTotal());
+        assertEquals(sketch.getMinCount(), restored.getMinCount());
+        for (int counter = 0; counter < sketch.size(); counter++) {
+            int restoredCounter = restored.counterOf(sketch.key(counter));
+            assertEquals(sketch.count(counter), restored.count(restoredCounter));
+            assertEquals(sketch.error(counter), restored.error(restoredCounter));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void restoreRejectsKnownKey() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.increment(1);
+        sketch.restore(1, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addRejectsNonPositiveDelta() {
+        new SpaceSaving(2).add(1, 0);
+    }
+
+    /**
+     * Counts keys drawn from [0, distinct), the low keys much more often than the high ones
+     */
+    private static void count(Random random, int distinct, int occurrences, SpaceSaving sketch, Map<Long, Long> exact) {
+        for (int i = 0; i < occurrences; i++) {
+            long key = (long) (Math.pow(random.nextDouble(), 3) * distinct);
+            long delta = 1 + random.nextInt(3);
+            sketch.add(key, delta);
+            exact.merge(key, delta, Long::sum);
+        }
+    }
+
+    private static void assertBounds(SpaceSaving sketch, Map<Long, Long> exact) {
+        assertEquals(exact.values().stream().mapToLong(Long::longValue).sum(), sketch.getTotal());
+        assertTrue(sketch.size() <= sketch.getCapacity());
+        for (int counter = 0; counter < sketch.size(); counter++) {
+            long trueCount = exact.getOrDefault(sketch.key(counter), 0L);
+            assertTrue("count below the true one", trueCount <= sketch.count(counter));
+            assertTrue("error above the overestimation", sketch.count(counter) - sketch.error(counter) <= trueCount);
+        }
+        for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+            if (sketch.counterOf(entry.getKey()) < 0) {
+                assertTrue("missing key above the minimal count", entry.getValue() <= sketch.getMinCount());
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.epam.yarn.split;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.bzip2.CBZip2OutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cuts plain and compressed samples at random offsets and checks that the splits together
+ * read every line exactly once, in the order of the file
+ */
+public class SplitLineInputStreamTest {
+
+    private static final int CUTS = 30;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Configuration conf;
+    private FileSystem fs;
+
+    @Before
+    public void setUp() throws IOException {
+        conf = new Configuration();
+        fs = FileSystem.getLocal(conf);
+    }
+
+    @Test
+    public void plainSplitsReadEveryLineOnce() throws IOException {
+        Random random = new Random(1);
+        for (int sample = 0; sample < 5; sample++) {
+            byte[] content = lines(random, 2000, sample % 2 == 0);
+            Path file = write("sample-" + sample + ".csv", content);
+            for (int cut = 0; cut < CUTS; cut++) {
+                assertSplitsRead(content, file, randomSplits(random, file, content.length, 1 + random.nextInt(20)),
+                        random);
+            }
+        }
+    }
+
+    @Test
+    public void plainSplitsCutAtEveryOffsetReadEveryLineOnce() throws IOException {
+        Random random = new Random(2);
+        byte[] content = lines(random, 20, false);
+        Path file = write("short.csv", content);
+        for (long offset = 1; offset < content.length; offset++) {
+            List<FileSplit> splits = new ArrayList<>();
+            splits.add(new FileSplit(file, 0, offset));
+            splits.add(new FileSplit(file, offset, content.length - offset));
+            assertSplitsRead(content, file, splits, random);
+        }
+    }
+
+    @Test
+    public void bzip2SplitsReadEveryLineOnce() throws IOException {
+        Random random = new Random(3);
+        int mostReadingSplits = 0;
+        for (int sample = 0; sample < 2; sample++) {
+            byte[] content = lines(random, 8000, sample == 0);
+            Path file = write("sample-" + sample + ".csv.bz2", content);
+            long length = fs.getFileStatus(file).getLen();
+            for (int cut = 0; cut < CUTS / 3; cut++) {
+                List<FileSplit> splits = randomSplits(random, file, length, 1 + random.nextInt(12));
+                mostReadingSplits = Math.max(mostReadingSplits, assertSplitsRead(content, file, splits, random));
+            }
+        }
+        // Lines of later blocks are read by later splits, not all by the first one
+        assertTrue(mostReadingSplits > 2);
+    }
+
+    @Test
+    public void gzipFileIsReadAsOneSplit() throws IOException {
+        Random random = new Random(4);
+        byte[] content = lines(random, 5000, true);
+        Path file = write("sample.csv.gz", content);
+        FileStatus status = fs.getFileStatus(file);
+
+        List<FileSplit> splits = InputSplitter.split(conf, Collections.singletonList(status), 8);
+        assertEquals(1, splits.size());
+        assertSplitsRead(content, file, splits, random);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gzipFileIsNotCut() throws IOException {
+        byte[] content = lines(new Random(5), 100, true);
+        Path file = write("cut.csv.gz", content);
+        InputFiles.openSplit(conf, fs, new FileSplit(file, 10, fs.getFileStatus(file).getLen() - 10));
+    }
+
+    /**
+     * Lines of 0 to 300 characters, the last one terminated or not
+     */
+    private static byte[] lines(Random random, int count, boolean terminated) {
+        StringBuilder lines = new StringBuilder();
+        for (int line = 0; line < count; line++) {
+            int length = random.nextInt(10) == 0 ? 0 : random.nextInt(300);
+            lines.append(line);
+            for (int i = 0; i < length; i++) {
+                lines.append((char) ('a' + random.nextInt(26)));
+            }
+            if (terminated || line + 1 < count) {
+                lines.append('\n');
+            }
+        }
+        return lines.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the content compressed by the codec of the file name. Bzip2 is written in blocks of 100k,
+     * the smallest ones, so that the samples consist of several blocks
+     */
+    private Path write(String name, byte[] content) throws IOException {
+        Path file = new Path(folder.getRoot().getAbsolutePath(), name);
+        CompressionCodec codec = InputFiles.getCodec(conf, file);
+        OutputStream out = fs.create(file);
+        if (codec instanceof BZip2Codec) {
+            // The magic is written by the codec, which always uses the largest blocks
+            out.write(new byte[]{'B', 'Z'});
+            out = new CBZip2OutputStream(out, 1);
+        } else if (codec != null) {
+            out = codec.createOutputStream(out);
+        }
+        try (OutputStream written = out) {
+            written.write(content);
+        }
+        return file;
+    }
+
+    private static List<FileSplit> randomSplits(Random random, Path file, long length, int count) {
+        TreeSet<Long> cuts = new TreeSet<>();
+        while (cuts.size() < Math.min(count - 1, length - 1)) {
+            cuts.add(1 + (long) (random.nextDouble() * (length - 1)));
+        }
+        cuts.add(length);
+        List<FileSplit> splits = new ArrayList<>();
+        long start = 0;
+        for (long cut : cuts) {
+            splits.add(new FileSplit(file, start, cut - start));
+            start = cut;
+        }
+        return splits;
+    }
+
+    /**
+     * @return number of the splits which read any lines
+     */
+    private int assertSplitsRead(byte[] content, Path file, List<FileSplit> splits, Random random)
+            throws IOException {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        int readingSplits = 0;
+        for (FileSplit split : splits) {
+            int before = read.size();
+            try (InputStream in = InputFiles.openSplit(conf, fs, split)) {
+                readAll(in, read, random);
+            }
+            if (read.size() > before) {
+                readingSplits++;
+            }
+        }
+        assertArrayEquals("Lines read from the splits " + splits + " of " + file,
+                content, read.toByteArray());
+        return readingSplits;
+    }
+
+    /**
+     * Reads with single bytes and with buffers of random lengths at random offsets
+     */
+    private static void readAll(InputStream in, ByteArrayOutputStream out, Random random) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            if (random.nextInt(4) == 0) {
+                int b = in.read();
+                if (b == -1) {
+                    return;
+                }
+                out.write(b);
+                continue;
+            }
+            int off = random.nextInt(100);
+            int n = in.read(buffer, off, 1 + random.nextInt(buffer.length - off));
+            if (n == -1) {
+                return;
+            }
+            out.write(buffer, off, n);
+        }
+    }
+}